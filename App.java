@@ -28,7 +28,7 @@ public class App
             b.x = 10;
         }
 
-       // Mem.debug_log = true;
+       // MemTrace.start("mem.trace");
        long t1 = System.nanoTime();
        long m1 = System.currentTimeMillis();
        Mem.free(obj);
@@ -7,714 +7,222 @@
  *  to already initialized objects so that they may be reused as
  *  opposed to being discarded for the GC to consume. This library is
  *  meant to mimic the C-style of allocating and freeing memory.
- *  
+ * 
  *  An ideal use of this class is within a large loop which frequently
  *  allocates memory to the heap. Instead of discarding the allocated
  *  data once the variable scope is over, it's reference will be saved
  *  to the "backend" of this class, and may be reused on the next loop
  *  iteration.
  * 
+ *  Mem is the static front of one default MemPool, shared by every
+ *  caller that has no pool of it's own. Each function here does the
+ *  same as the MemPool function of the same name, see MemPool for
+ *  details. Flags are set on the default pool itself:
+ * 
+ *      Mem.pool.concurrent_mode = true;
+ * 
+ *  Subsystems that should not share pages, caches or limits with
+ *  everyone else create their own pool with new MemPool(name).
+ * 
  * CONTENTS:
  *  - Imports
  *  - Class block
- *  - Private class macros
- *  - Internal "Page" class definition
- *      - Page logging flags
- *      - Page logging function
- *      - Page info members
- *      - Page buffer members
- *      - Page cache member
- *      - Page constructor
- *      - Page info retrival function
- *      - Page allocate function
- *      - Internal "PCache" class definition
- *          - Cache info members
- *          - Cache buffer members
- *          - Cache constructor
- *          - Cache allocate function
- *          - Cache free function
- *      - Page free function
- *      - Page forcefree function
- *      - Page cache dump function
- *      - Page buffer dump function
- *  - Info members
- *  - Buffer members
- *  - Cache members
- *  - Cache allocate function
- *  - Alloc function
- *  - Page clean function
- *  - Free function
- *  - Dump function
- *  - Pagedump function
- *  - Pagespec function
- *  - Cachedump function (L2)
- *  - Cachedump function (L1)
+ *  - Default pool member
+ *  - Geometry functions
+ *  - Allocate functions
+ *  - Handle functions
+ *  - Trim functions
+ *  - Limit functions
+ *  - Reserve functions
+ *  - Trimmer functions
+ *  - Free functions
+ *  - Scope function
+ *  - Flush functions
+ *  - Leak function
+ *  - Stats functions
+ *  - Dump functions
  */
 
  /* ===== IMPORTS ===== */
- import java.util.*;
- import java.lang.reflect.*;
- import javax.swing.*;
+ import java.util.function.*;
 
  /* ===== CLASS BLOCK ===== */
  public final class Mem
  {
-    /* ===== PAGE LOGGING FLAGS ===== */
-    public static boolean debug_log = false;
+    /* ===== DEFAULT POOL MEMBER ===== */
+    public static final MemPool pool = new MemPool();
+
+    private Mem() { }
 
-    /* ===== PAGE LOGGING FUNCTION ===== */
-    private static void pageLog(String format, Object... args)
+    /* ===== GEOMETRY FUNCTIONS ===== */
+    public static int configure(int pageSize, int diversity)
     {
-        if (debug_log) 
-        {
-            System.out.printf(format, args);
-        }
+        return pool.configure(pageSize, diversity);
     }
 
-    /* ===== CLASS MACROS ===== */
-    private static final int PAGESIZE = 0x200;
-    private static final int DIVERSITY = 0x20;
-    private static final int UNUSED = 0b01000000; /* one off from sign */
-    private static final int L1CACHESIZE = 0x10;
-    private static final int L2CACHESIZE = 0x20;
-    private static final int CACHEEMPTY = -1;
-    private static final int PAGECOUNT = 0x100;
-    private static final int PAGECLEANINTERVAL = 0x10;
-
-    /* ===== PAGE CLASS ===== */
-    private static class Page
+    public static <T> int register(Class<T> type, Supplier<T> factory)
     {
-        /* ===== PAGE INFO MEMBERS ===== */
-        public short info_diversity = 0;
-        public short info_bufferuse = 0;
-        
-        /* ===== PAGE BUFFER MEMBERS ===== */
-        private Class[] buffer_divMap; /* index map to each class */
-        private byte[] buffer_divField; /* class index field */
-        private Object[] buffer_data; /* object data buffer */
-
-        /* ===== PAGE CACHE MEMBER ===== */
-        private PCache cache;
-
-        /* ===== PAGE CONSTRUCTOR ===== */
-        public Page()
-        {
-            /* heap allocate buffers */
-            buffer_divMap = new Class[DIVERSITY];
-            buffer_divField = new byte[PAGESIZE];
-            buffer_data = new Object[PAGESIZE];
-
-            /* set all divIndex values to unused */
-            for (int i = 0; i < PAGESIZE; i++)
-            {
-                buffer_divField[i] |= UNUSED;
-            }
-
-            /* init cache member */
-            cache = new PCache();
-        } /* PAGE CTOR END */
-
-        /* ===== PAGE INFO RETRIVAL FUNCTION ===== */
-        public int getPageInfo()
-        {
-            return info_diversity | (info_bufferuse << 16);
-        } /* PAGE INFO END */
-
-        /* ===== PAGE ALLOCATE FUNCTION ===== */
-        /* returns null on failure */
-        public Object alloc(Class type, int page)
-        {
-            pageLog("Pagealloc called\n");
-
-            /* first, register class to diversity Map */
-            /* search for collision, if none, add class */
-            int typeIndex = -1;
-            for (int i = 0; i < DIVERSITY; i++)
-            {
-                /* on collide */
-                if (type.equals(buffer_divMap[i]))
-                {
-                    pageLog("Div collision at divMap[%d]\n", i);
-                    typeIndex = i;
-                    break;
-                }
-
-                /* on free */
-                if (buffer_divMap[i] == null)
-                {
-                    typeIndex = i;
-                    buffer_divMap[i] = type;
-                    info_diversity++; /* increment div count */
-                    pageLog("Created div at divMap[%d]\n", i);
-                    break;
-                }
-            } /* BUFFER SEARCH LOOP END */
-
-            /* on div create fail, exit */
-            if (typeIndex == -1)
-            {
-                pageLog("Div creation failed!\n");
-                return null;
-            }
-
-            /* variable for storing free data index for object to alloc */
-            int allocIndex = 0;
-            
-            /* search for free data buffer spot */
-            /* if data buffer is full, return null */
-            if (info_bufferuse >= PAGESIZE) return null;
-
-            /* start search between total buffer use and start */
-            int startIndex = info_bufferuse / 2;
-            for (int i = startIndex; i < PAGESIZE; i++)
-            {
-                /* on used, continue */
-                if ((buffer_divField[i] & UNUSED) == 0) continue;
-
-                /* NOW, ALL ARE UNUSED */
-                /* on unused, check for not matching */
-                if (typeIndex != (buffer_divField[i] & ~UNUSED))
-                {
-                    /* NOW, ALL ARE UNUSED & UNMATCHING */
-                    /* if unmatching and not null, continue */
-                    if (buffer_data[i] != null) continue;
-                } 
-
-                /* NOW, ALL ARE UNUSED, AND COULD BE NULL */
-                /* on unused and matching, check if not null */
-                if (buffer_data[i] != null)
-                {
-                    /* assign instance to buffer index  and change divField */
-                    buffer_data[i] = buffer_data[i];
-                    buffer_divField[i] = (byte)typeIndex;
-
-                    /* add object to L1 cache */
-                    cacheAlloc(buffer_data[i].hashCode(),
-                     page, i);
-
-                    /* add object to L2 cache */
-                    cache.alloc(buffer_data[i], i);
-
-                    /* return object reference and increment usecount */
-                    pageLog("Alloced object at index: %d\n", i);
-                    info_bufferuse++;
-                    return buffer_data[i];
-                }
-
-                /* on unused, try to get class ctor */
-                Constructor objCtor;
-                try { objCtor = type.getConstructor(null); }
-                catch (Exception exception) { pageLog("Alloc failed: Faulty ctor\n");
-                    return null; }
-
-                /* afterwards, try to create instance */
-                Object instance;
-                try { instance = objCtor.newInstance(null); }
-                catch (Exception exception) { pageLog("Alloc failed: Faulty init\n");
-                    return null; }
-
-                /* assign instance to buffer index  and change divField */
-                buffer_data[i] = instance;
-                buffer_divField[i] = (byte)typeIndex;
-
-                /* add to L1 cache */
-                cacheAlloc(instance.hashCode(), page, i);
-
-                /* add object to cache */
-                cache.alloc(instance, i);
-
-                /* return object reference and increment usecount */
-                pageLog("Alloced object at index: %d\n", i);
-                info_bufferuse++;
-                return instance;
-            } /* DATA BUFFER SEARCH END */
-
-            /* on buffer search exit, failure */
-            pageLog("Alloc failed: Buffer search exit\n");
-            return null;
-        } /* PAGE ALLOC FUNCTION END */
-
-        /* ===== PCACHE CLASS ===== */
-        public final class PCache
-        {
-            /* ===== PCACHE INFO MEMBERS ===== */
-            public long info_cacheAge = 0;
-            
-            /* ===== PCACHE BUFFER MEMBERS ===== */
-            public int[] buffer_hashdata; /* hash data buffer  */
-            public long[] buffer_ageField; /* age of each hash data index */
-            public int[] buffer_indexMap; /* page index of each data index */
-
-            /* ===== CACHE CONSTRUCTOR ===== */
-            public PCache()
-            {
-                /* heap alloc buffers */
-                buffer_hashdata = new int[L2CACHESIZE];
-                buffer_ageField = new long[L2CACHESIZE];
-                buffer_indexMap = new int[L2CACHESIZE];
-
-                /* set all to empty */
-                for (int i = 0; i < L2CACHESIZE; i++)
-                {
-                    buffer_hashdata[i] = CACHEEMPTY;
-                }
-            }
-
-            /* ===== CACHE ALLOCATE FUNCTION ===== */
-            public void alloc(Object obj, int index)
-            {
-                pageLog("L2 CACHEALLOC CALLED\n");
-
-                /* increment cache age */
-                info_cacheAge++;
-
-                /* increment buffer age */
-                for (int i = 0; i < L2CACHESIZE; i++)
-                {
-                    if (buffer_hashdata[i] == CACHEEMPTY) continue;
-                    buffer_ageField[i]++;
-                }
-
-                /* get hash code */
-                int objHash = obj.hashCode();
-
-                /* search for oldest cache entry */
-                long oldest = 0;
-                int oldestIndex = 0;
-                for (int i = 0; i < L2CACHESIZE; i++)
-                {
-                    /* on empty, assign and return */
-                    if (buffer_hashdata[i] == CACHEEMPTY)
-                    {
-                        /* assign buffer data */
-                        buffer_hashdata[i] = objHash;
-                        buffer_ageField[i] = 0;
-                        buffer_indexMap[i] = index;
-                        pageLog("Empty L2 cache spot at: %d\n",
-                            i);
-                        return;
-                    }
-
-                    /* update oldest & oldest index */
-                    if (oldest < buffer_ageField[i])
-                    {
-                        oldest = buffer_ageField[i];
-                        oldestIndex = i;
-                    }
-                } /* GET OLDEST LOOP END */
-
-                /* assign oldest index to new data */
-                pageLog("Replaced oldest L2 cache: %d\n", oldestIndex);
-                buffer_hashdata[oldestIndex] = objHash;
-                buffer_ageField[oldestIndex] = 0;
-                buffer_indexMap[oldestIndex] = index;
-                return;
-            } /* END PCACHE ALLOC FUNCTION */
-
-            /* ===== PCACHE FREE FUNCTION ===== */
-            /* returns page index of freed object, -1 for not found */
-            public int free(int hashCode)
-            {
-                /* search hashbuffer for match */
-                for (int i = 0; i < L2CACHESIZE; i++)
-                {
-                    /* on match, free hash and return page index */
-                    if (hashCode == buffer_hashdata[i])
-                    {
-                        buffer_hashdata[i] = CACHEEMPTY;
-                        return buffer_indexMap[i];
-                    }
-                }
-
-                /* failure */
-                return -1;
-            }
-        } /* END PCACHE BLOCK */
-
-        /* ===== PAGE FREE FUNCTION ===== */
-        /* returns 1 on sucess, 0 on failure */
-        public int free(Object toFree)
-        {
-            pageLog("Pagefree called\n");
-            /* get object hash code */
-            int hashCode = toFree.hashCode();
-
-            /* try freeing from cache */
-            int freeIndex = cache.free(hashCode);
-
-            /* on cachefault, brute force it */
-            if (freeIndex == -1)
-            {
-                pageLog("Cachefault!\n");
-
-                /* loop through buffer */
-                for (int i = 0; i < PAGESIZE; i++)
-                {
-                    /* ignore if unused or if null */
-                    if ((buffer_divField[i] & UNUSED) == 1) continue;
-                    if (buffer_data[i] == null) continue;
-                    /* compare hashcodes */
-                    if (buffer_data[i].hashCode() == hashCode)
-                    {
-                        /* set divField to unused and return */
-                        pageLog("Freed object at index: %d\n", i);
-                        buffer_divField[i] |= UNUSED;
-                        info_bufferuse--;
-                        return 1;
-                    } /* HASH COLLIDE CHECK END */
-                } /* BUFFER LOOP END */
-                /* on loop exit, fail */
-                pageLog("Free failed: Buffer search exit\n");
-                return 0;
-            } /* CACHEFAULT CONDITION END */
-            else
-            {
-                buffer_divField[freeIndex] |= UNUSED;
-                pageLog("Freed object at index: %d\n", freeIndex);
-                info_bufferuse--;
-                return 1;
-            } /* CACHE HIT CONDITION END */
-        } /* PAGE FREE FUNCTION END */
-
-        /* ===== PAGE FORCE FREE FUNCTION ===== */
-        /* 1 on sucess, 0 on fail */
-        public int forceFree(int index)
-        {
-            /* on already unused */
-            if ((buffer_divField[index] & UNUSED) != 0)
-            {
-                pageLog("Forcefree failed! Object already free\n");
-                return 0;
-            }
-
-            buffer_divField[index] |= UNUSED;
-            pageLog("Forcefreed object at index: %d\n", index);
-            info_bufferuse--;
-
-            /* search for cache collision and free */
-            for (int i = 0; i < L2CACHESIZE; i++)
-            {
-                /* on matching, free */
-                if (cache.buffer_hashdata[i] ==
-                    buffer_data[index].hashCode())
-                {
-                    cache.buffer_hashdata[i] = CACHEEMPTY;
-                } /* CACHE HIT END */
-            } /* UPDATE CACHE END */
-            return 1;
-            
-        }
-
-        /* ===== PAGE CACHE DUMP FUNCTION ===== */
-        public void cacheDump()
-        {
-            System.out.printf("PAGE CACHE CONTENTS:\n");
-            for (int i = 0; i < L2CACHESIZE; i++)
-            {
-                System.out.printf("\tIndex: [%02d]\n", i);
-                System.out.printf("\t\tHashCode: <%012d>\n",
-                    cache.buffer_hashdata[i]);
-                System.out.printf("\t\tEntryAge: <%012d>\n",
-                    cache.buffer_ageField[i]);
-                System.out.printf("\t\tPageIndex: <%012d>\n",
-                    cache.buffer_indexMap[i]);
-            }
-        } /* PAGE CACHE DUMP FUNCTION END */
-
-        /* ===== PAGE BUFFER DUMP FUNCTION ===== */
-        public void bufferDump()
-        {
-            System.out.printf("PAGE BUFFER CONTENTS:\n");
-            for (int i = 0; i < PAGESIZE; i++)
-            {
-                /* on empty, continue */
-                if ((buffer_divField[i] & (~UNUSED)) == 1) continue;
-                if (buffer_data[i] == null) continue;
-                System.out.printf("\tIndex: [%03d]\n", i);
-                System.out.printf("\t\tObject Hash: %012d\n",
-                    buffer_data[i].hashCode());
-                System.out.printf("\t\tObject Type: %d\n",
-                    buffer_divField[i] & ~UNUSED);
-            }
-        } /* PAGE BUFFER DUMP END */
-    } /* PAGE CLASS BLOCK END */
-
-    /* ===== INFO MEMBERS ===== */
-    public static int info_pageCount = 0;
-
-    /* ===== BUFFER MEMBERS ===== */
-    private static Page[] buffer_pages = new Page[PAGECOUNT];
-
-    /* ===== CACHE MEMBERS ===== */
-    private static int[] cache_hashdata = new int[L1CACHESIZE];
-    private static long[] cache_indexmap = new long[L1CACHESIZE];
-    private static long[] cache_agemap = new long[L1CACHESIZE];
-    private static byte[] cache_usemap = new byte[L1CACHESIZE];
-
-    /* ===== CACHE ALLOCATE FUNCTION ===== */
-    private static void cacheAlloc(int hashData, int page, int index)
-    {
-        pageLog("L1 CACHEALLOC CALLED\n");
-
-        /* update all ages */
-        for (int i = 0; i < L1CACHESIZE; i++)
-        {
-            cache_agemap[i]++;
-        }
-
-        /* loop through buffer and get oldest */
-        long oldestval = -1;
-        int oldestIndex = -1;
-        for (int i = 0; i < L1CACHESIZE; i++)
-        {
-            /* check if cache is empty */
-            if (cache_usemap[i] == 0)
-            {
-                /* assign data */
-                cache_hashdata[i] = hashData;
-                cache_agemap[i] = 0;
-                cache_usemap[i] = 1;
-                cache_indexmap[i] = index | (page << 16);
-                pageLog("L1 Alloc at index: %d\n", i);
-                return;
-            } /* EMPTY CONDITION END */
-
-            /* get new oldest value */
-            if (cache_agemap[i] > oldestval)
-            {
-                oldestval = cache_agemap[i];
-                oldestIndex = i;
-            } /* OLDEST UPDATE END */
-        } /* BUFFER SEARCH LOOP END */
-        /* on search exit, assign to oldest index */
-        cache_hashdata[oldestIndex] = hashData;
-        cache_agemap[oldestIndex] = 0;
-        cache_usemap[oldestIndex] = 1;
-        cache_indexmap[oldestIndex] = index | (page << 16);
-        pageLog("L1 Alloc at index: %d\n", oldestIndex);
-        return;
-    } /* CACHEALLOC FUNCTION END */
-
-    /* ===== ALLOCATE FUNCTION ===== */
+        return pool.register(type, factory);
+    } /* GEOMETRY FUNCTIONS END */
+
+    /* ===== ALLOCATE FUNCTIONS ===== */
     public static Object alloc(Class type)
     {
-        pageLog("ALLOC CALLED\n");
-
-        /* loop through all pages */
-        for (int i = 0; i < PAGECOUNT; i++)
-        {
-            /* if null, create page */
-            if (buffer_pages[i] == null)
-            {
-                buffer_pages[i] = new Page();
-                info_pageCount++;
-            }
-            
-            /* if page is full, continue */
-            if (buffer_pages[i].info_bufferuse == PAGESIZE)
-            {
-                pageLog("Skipping page %d: page is full\n", i);
-                continue;
-            }
-
-            /* try allocate from page */
-            Object temp =  buffer_pages[i].alloc(type, i);
-
-            /* on alloc fail, */
-            if (temp == null)
-            {
-                pageLog("Alloc failed at page: %d\n", i);
-                pageLog("Trying next page...\n");
-                continue;
-            }
-            /* else, return object */
-            return temp;
-        } /* PAGE SEARCH END */
-
-        /* on exit, failure */
-        System.err.printf("OUT OF PAGES!\n");
-        return null;
-    } /* ALLOC FUNCTION END */
-
-    /* ===== PAGE CLEAN FUNCTION ===== */
-    private static long pageClean = 0;
+        return pool.alloc(type);
+    }
+
+    public static int allocBatch(Class type, int n, Object[] out)
+    {
+        return pool.allocBatch(type, n, out);
+    }
+
+    public static Object allocArray(Class component, int minLength)
+    {
+        return pool.allocArray(component, minLength);
+    } /* ALLOCATE FUNCTIONS END */
+
+    /* ===== HANDLE FUNCTIONS ===== */
+    public static long allocHandle(Class type)
+    {
+        return pool.allocHandle(type);
+    }
+
+    public static Object get(long handle)
+    {
+        return pool.get(handle);
+    } /* HANDLE FUNCTIONS END */
+
+    /* ===== TRIM FUNCTIONS ===== */
     public static void pageClean()
     {
-        pageClean++;
-
-        /* check all pages, if any pages are empty, remove them */
-        /* only clean pages every so many intervals */
-        if (pageClean % PAGECLEANINTERVAL == 0)
-        {
-            pageLog("CLEANING PAGES!\n");
-            int cleanCount = 0;
-            for (int i = 0; i < info_pageCount; i++)
-            {
-                if (buffer_pages[i].info_bufferuse == 0)
-                {
-                    buffer_pages[i] = null;
-                    info_pageCount--;
-                    cleanCount++;
-                } /* EMPTY CHECK END */
-            } /* PAGEBUFFER LOOP END */
-
-            /* if pages were cleaned, call GC */
-            pageLog("Pages cleaned: %d\n", cleanCount);
-            if (cleanCount > 0) 
-            {
-                long t1 = System.currentTimeMillis();
-                System.gc();
-                long t2 = System.currentTimeMillis();
-                pageLog("GC Time: %d miliseconds\n", t2 - t1);
-            }
-        } /* PAGECLEAN CHECK END */
-    } /* PAGECLEAN FUNCTION END */
-
-    /* ===== FREE FUNCTION ===== */
-    /* returns 1 on sucess, 0 on failure */
-    
+        pool.pageClean();
+    }
+
+    public static int compact()
+    {
+        return pool.compact();
+    } /* TRIM FUNCTIONS END */
+
+    /* ===== LIMIT FUNCTIONS ===== */
+    public static int limit(Class type, int maxFree, long maxBytes,
+        long idleMillis, boolean soft)
+    {
+        return pool.limit(type, maxFree, maxBytes, idleMillis, soft);
+    }
+
+    public static int limitArray(Class component, int length, int maxFree,
+        long maxBytes, long idleMillis, boolean soft)
+    {
+        return pool.limitArray(component, length, maxFree, maxBytes,
+            idleMillis, soft);
+    }
+
+    public static int evict()
+    {
+        return pool.evict();
+    }
+
+    public static void adapt()
+    {
+        pool.adapt();
+    } /* LIMIT FUNCTIONS END */
+
+    /* ===== RESERVE FUNCTIONS ===== */
+    public static int reserve(Class type, int count)
+    {
+        return pool.reserve(type, count);
+    }
+
+    public static int reserve(Class[] types, int[] counts)
+    {
+        return pool.reserve(types, counts);
+    } /* RESERVE FUNCTIONS END */
+
+    /* ===== TRIMMER FUNCTIONS ===== */
+    public static int startTrimmer(long periodMillis, long idleMillis,
+        double pressure)
+    {
+        return pool.startTrimmer(periodMillis, idleMillis, pressure);
+    }
+
+    public static void stopTrimmer()
+    {
+        pool.stopTrimmer();
+    } /* TRIMMER FUNCTIONS END */
+
+    /* ===== FREE FUNCTIONS ===== */
     public static int free(Object toFree)
     {
-        pageLog("FREE CALLED\n");
-
-        /* first, check L1 cache */
-        pageLog("Checking L1 cache\n");
-        int hashCode = toFree.hashCode();
-        for (int i = 0; i < L1CACHESIZE; i++)
-        {
-            /* on hit */
-            if (cache_hashdata[i] == hashCode)
-            {
-                /* crazy bit hack */
-                long index = cache_indexmap[i] & (long)0xFFFF;
-                long page = cache_indexmap[i] >> 16;
-
-                /* forcefree */
-                pageLog("L1 hit data: P:%d I:%d\n", page, index);
-                int status = buffer_pages[(int)page].forceFree((int)index);
-                
-                /* check if hit */
-                if (status == 1)
-                {
-                    pageLog("Object hit at L1, freed sucess!\n");
-                    pageClean();
-                    return 1;
-                }
-                else
-                {
-                    /* on L1 failure, try L2*/
-                    pageLog("Free failed: L1 and page mismatch\n");
-                    pageLog("Attempting to search L2 cache\n");
-
-                    /* free L1 */
-                    cache_usemap[i] = 0;
-                    break;
-                } /* L1 FREE ATTEMPT END */
-            } /* L1 HIT CHECK END */
-        } /* L1 BUFFER SEARCH END */
-
-        pageLog("No hit at L1, trying L2...\n");
-
-        /* loop through all pages */
-        int faults = 0;
-        int inSearch = 0;
-        for (int i = 0; i < info_pageCount; i++)
-        {
-            /* zig zag from last page to first page inwards */
-            /* so that last tested page will be roughly in the */
-            /* middle */
-            int j = 0;
-            if (i % 2 == 0)
-            {
-                j = inSearch;
-            }
-            else
-            {
-                j = info_pageCount - inSearch - 1;
-                inSearch++;
-            }
-            
-            pageLog("Searching page: %d\n", j);
-
-            /* try to free, if sucess, return */
-            int status = buffer_pages[j].free(toFree);
-            if (status == 1)
-            {
-                pageLog("Freed Object Sucessfully!\n");
-                pageLog("L2 Cachefaults: %d\n", faults);
-                pageClean();
-                return 1;
-            } 
-            faults++;
-        }   
-
-        /* fail condition */
-        System.err.printf("COULD NOT FREE OBJECT\n");
-        return 0;
-    } /* FREE FUNCTION END */
-
-    /* ===== DUMP FUNCTION ===== */
+        return pool.free(toFree);
+    }
+
+    public static int free(long handle)
+    {
+        return pool.free(handle);
+    }
+
+    public static int freeBatch(Object[] objs, int from, int to)
+    {
+        return pool.freeBatch(objs, from, to);
+    }
+
+    public static int freeArray(Object array)
+    {
+        return pool.freeArray(array);
+    } /* FREE FUNCTIONS END */
+
+    /* ===== SCOPE FUNCTION ===== */
+    public static MemScope scope()
+    {
+        return pool.scope();
+    } /* SCOPE FUNCTION END */
+
+    /* ===== FLUSH FUNCTIONS ===== */
+    public static void flushMagazine()
+    {
+        pool.flushMagazine();
+    }
+
+    public static void flushDepots()
+    {
+        pool.flushDepots();
+    } /* FLUSH FUNCTIONS END */
+
+    /* ===== LEAK FUNCTION ===== */
+    public static int collectLeaks()
+    {
+        return pool.collectLeaks();
+    } /* LEAK FUNCTION END */
+
+    /* ===== STATS FUNCTIONS ===== */
+    public static MemStats stats()
+    {
+        return pool.stats();
+    }
+
+    public static int registerMBean()
+    {
+        return pool.registerMBean();
+    } /* STATS FUNCTIONS END */
+
+    /* ===== DUMP FUNCTIONS ===== */
     public static void dump()
     {
-        /* loop through all pages */
-        for (int i = 0; i < info_pageCount; i++)
-        {
-            System.out.printf("=====DUMPING PAGE: <%d>=====\n", i);
-            buffer_pages[i].cacheDump();
-            buffer_pages[i].bufferDump();
-        }
+        pool.dump();
     }
 
-    /* ===== PAGEDUMP FUNCTION ===== */
     public static void pageDump(int page)
     {
-        if (buffer_pages[page] == null)
-        {
-            System.err.printf("Could not dump page: Page does not exist!\n");
-            return;
-        }
-        cacheDumpL1();
-        buffer_pages[page].cacheDump();
-        buffer_pages[page].bufferDump();
-    } /* PAGEDUMP FUNCTION END */
-
-    /* ===== PAGESPEC FUNCTION ===== */
+        pool.pageDump(page);
+    }
+
     public static void pageSpec()
     {
-        System.out.printf("PAGE SPECIFICATIONS:\n");
-        for (int i = 0; i < info_pageCount; i++)
-        {
-            System.out.printf("\tPage[%d]\n", i);
-            System.out.printf("\t\tBufferuse: %03d\n",
-                buffer_pages[i].info_bufferuse);
-            System.out.printf("\t\tDiversity: %03d\n",
-                buffer_pages[i].info_diversity);
-        }
+        pool.pageSpec();
     }
 
-    /* ===== CACHEDUMP FUNCTION (L2) ===== */
-    public static void cacheDumpL2(int page)
-    {
-        if (buffer_pages[page] == null)
-        {
-            System.err.printf("Could not dump page: Page does not exist!\n");
-            return;
-        }
-        buffer_pages[page].cacheDump();
-    } /* CACHEDUMP L2 FUNCTION END */
-
-    /* ===== CACHEDUMP FUNCTION (L1) ===== */
-    public static void cacheDumpL1()
+    public static void indexDump()
     {
-        System.out.printf("DUMPING L1 CACHE\n");
-
-        for (int i = 0; i < L1CACHESIZE; i++)
-        {
-            System.out.printf("L1 Index: [%d]\n", i);
-            System.out.printf("\tHashval: %02d\n", cache_hashdata[i]);
-            System.out.printf("\tAge: %05d\n", cache_agemap[i]);
-            System.out.printf("\tIndex: %d\n", cache_indexmap[i]);
-            System.out.printf("\tUseage: %d\n", cache_usemap[i]);
-        }
-    } /* CACHEDUMP L1 FUNCTION END */
- } /* END CLASS BLOCK */
\ No newline at end of file
+        pool.indexDump();
+    } /* DUMP FUNCTIONS END */
+ } /* END CLASS BLOCK */
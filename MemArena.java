@@ -0,0 +1,475 @@
+/* <MemArena.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  An off-heap struct arena for flat classes whose fields are all
+ *  primitives, like Vect. Instead of keeping one heap object per
+ *  instance, the arena lays the fields of every instance out back
+ *  to back in a direct (or memory-mapped) ByteBuffer. Millions of
+ *  records cost the garbage collector nothing, and walking them in
+ *  order reads memory sequentially.
+ *
+ *  The record layout is generated from the class's fields when the
+ *  arena is created: widest fields first so every field is
+ *  naturally aligned, with the stride rounded up to the widest
+ *  field. Records are allocated and freed through handles that
+ *  work the same way as Mem handles (index in the low word,
+ *  generation in the high word), so a stale handle is detected
+ *  instead of reading someone else's record.
+ *
+ *  Fields are read and written through the arena itself acting as
+ *  a flyweight: resolve a handle to an address once, then access
+ *  fields by their offset:
+ *
+ *      MemArena<Vect> a = MemArena.create(Vect.class, 0x1000);
+ *      int X = a.offset("x");
+ *      long h = a.alloc();
+ *      a.setFloat(a.address(h), X, 1.0f);
+ *      a.free(h);
+ *
+ *  alloc and free are thread safe. Field access is not guarded,
+ *  and growing the arena moves the records, so field access must
+ *  not race with an alloc on another thread. A memory-mapped arena
+ *  holds it's file open until closed:
+ *
+ *      try (MemArena<Vect> a = MemArena.create(Vect.class, 0x1000, file))
+ *      {
+ *          ...
+ *      }
+ *
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Private class macros
+ *  - Info members
+ *  - Buffer members
+ *  - Layout members
+ *  - Create functions
+ *  - Constructor
+ *  - Layout function
+ *  - Alloc function
+ *  - Free function
+ *  - Address functions
+ *  - Layout getters
+ *  - Field accessors
+ *  - Copy functions
+ *  - Grow function
+ *  - Close function
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.io.*;
+ import java.util.*;
+ import java.nio.*;
+ import java.nio.channels.*;
+ import java.nio.file.*;
+ import java.util.concurrent.locks.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemArena<T> implements AutoCloseable
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int MININITRECORDS = 0x10;
+    private static final int LINKSIZE = 0x4; /* free records hold next index */
+    private static final int ENDLINK = -1;
+
+    /* ===== INFO MEMBERS ===== */
+    final Class<T> type;
+    int info_stride;
+    int info_capacity; /* records the buffer can hold */
+    int info_bumped = 0; /* records at or above this were never used */
+    int info_count = 0; /* live records */
+    int info_generation = 0;
+    int list_freeHead = ENDLINK;
+    final ReentrantLock info_lock = new ReentrantLock();
+    final FileChannel info_channel; /* null if not memory-mapped */
+
+    /* ===== BUFFER MEMBERS ===== */
+    ByteBuffer buffer_records;
+    int[] buffer_generations; /* 0 means the record is free */
+
+    /* ===== LAYOUT MEMBERS ===== */
+    MemLayout layout; /* fields, widest first */
+    int[] layout_offsets;
+
+    /* ===== CREATE FUNCTIONS ===== */
+    /* creates an arena backed by direct memory. returns null if the */
+    /* type has a field that is not a primitive */
+    public static <T> MemArena<T> create(Class<T> type, int capacity)
+    {
+        MemArena<T> arena = new MemArena<T>(type, null);
+        if (!arena.layout() || !arena.grow(capacity)) return null;
+        return arena;
+    }
+
+    /* creates an arena backed by a memory-mapped file, which grows */
+    /* the file as the arena grows. close() closes the file */
+    public static <T> MemArena<T> create(Class<T> type, int capacity,
+        Path file)
+    {
+        FileChannel channel;
+        try
+        {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("COULD NOT OPEN ARENA FILE: %s\n", file);
+            return null;
+        }
+
+        MemArena<T> arena = new MemArena<T>(type, channel);
+        if (!arena.layout() || !arena.grow(capacity))
+        {
+            arena.close();
+            return null;
+        }
+        return arena;
+    } /* CREATE FUNCTIONS END */
+
+    /* ===== CONSTRUCTOR ===== */
+    private MemArena(Class<T> type, FileChannel channel)
+    {
+        this.type = type;
+        this.info_channel = channel;
+        this.info_capacity = 0;
+        this.buffer_generations = new int[0];
+    } /* CTOR END */
+
+    /* ===== LAYOUT FUNCTION ===== */
+    /* assigns offsets to the type's fields, widest first, so every */
+    /* field is aligned */
+    private boolean layout()
+    {
+        layout = MemLayout.scan(type, "ARENA", true);
+        if (layout == null) return false;
+
+        int count = layout.count();
+        layout_offsets = new int[count];
+        int offset = 0;
+        int align = LINKSIZE;
+        for (int i = 0; i < count; i++)
+        {
+            int size = MemLayout.sizeOf(layout.layout_types[i]);
+            layout_offsets[i] = offset;
+            offset += size;
+            align = Math.max(align, size);
+        }
+
+        /* a free record must still fit it's free-list link */
+        offset = Math.max(offset, LINKSIZE);
+        info_stride = (offset + align - 1) / align * align;
+        return true;
+    } /* LAYOUT FUNCTION END */
+
+    /* ===== ALLOC FUNCTION ===== */
+    /* returns a handle to a zeroed record, or -1 on failure */
+    public long alloc()
+    {
+        info_lock.lock();
+        try
+        {
+            int index;
+            if (list_freeHead != ENDLINK)
+            {
+                index = list_freeHead;
+                list_freeHead = buffer_records.getInt(index * info_stride);
+            }
+            else
+            {
+                if (info_bumped == info_capacity &&
+                    !grow(info_capacity * 2)) return -1;
+                index = info_bumped++;
+            }
+
+            /* records come back zeroed, like a new object */
+            int base = index * info_stride;
+            for (int i = 0; i < info_stride; i++)
+            {
+                buffer_records.put(base + i, (byte)0);
+            }
+
+            info_generation = MemLayout.nextGeneration(info_generation);
+            buffer_generations[index] = info_generation;
+            info_count++;
+            return MemLayout.handle(info_generation, index);
+        }
+        finally { info_lock.unlock(); }
+    } /* ALLOC FUNCTION END */
+
+    /* ===== FREE FUNCTION ===== */
+    /* returns 1 on success, 0 if the handle is stale or invalid */
+    public int free(long handle)
+    {
+        info_lock.lock();
+        try
+        {
+            int index = MemLayout.resolve(handle, buffer_generations,
+                info_bumped);
+            if (index < 0)
+            {
+                System.err.printf("COULD NOT FREE ARENA HANDLE: %x\n",
+                    handle);
+                return 0;
+            }
+
+            buffer_generations[index] = 0;
+            buffer_records.putInt(index * info_stride, list_freeHead);
+            list_freeHead = index;
+            info_count--;
+            return 1;
+        }
+        finally { info_lock.unlock(); }
+    } /* FREE FUNCTION END */
+
+    /* ===== ADDRESS FUNCTIONS ===== */
+    /* resolves a handle to the byte address of it's record, or -1 */
+    /* if the handle is stale or invalid */
+    public int address(long handle)
+    {
+        int index = MemLayout.resolve(handle, buffer_generations, info_bumped);
+        return index < 0 ? -1 : index * info_stride;
+    }
+
+    /* records at indices below limit() may be live. walking them */
+    /* in order, skipping those not live(), visits every record */
+    /* sequentially, each at index * stride() */
+    public int limit()
+    {
+        return info_bumped;
+    }
+
+    public boolean live(int index)
+    {
+        return buffer_generations[index] != 0;
+    }
+
+    public int count()
+    {
+        return info_count;
+    }
+
+    public int capacity()
+    {
+        return info_capacity;
+    } /* ADDRESS FUNCTIONS END */
+
+    /* ===== LAYOUT GETTERS ===== */
+    public int stride()
+    {
+        return info_stride;
+    }
+
+    /* returns the byte offset of a field within a record, or -1 if */
+    /* the type has no such field */
+    public int offset(String field)
+    {
+        int i = layout.index(field);
+        return i < 0 ? -1 : layout_offsets[i];
+    } /* LAYOUT GETTERS END */
+
+    /* ===== FIELD ACCESSORS ===== */
+    /* addresses come from address() or index * stride(). they are */
+    /* not checked, the same way a flyweight does not check */
+    public float getFloat(int address, int offset)
+    {
+        return buffer_records.getFloat(address + offset);
+    }
+
+    public void setFloat(int address, int offset, float value)
+    {
+        buffer_records.putFloat(address + offset, value);
+    }
+
+    public double getDouble(int address, int offset)
+    {
+        return buffer_records.getDouble(address + offset);
+    }
+
+    public void setDouble(int address, int offset, double value)
+    {
+        buffer_records.putDouble(address + offset, value);
+    }
+
+    public int getInt(int address, int offset)
+    {
+        return buffer_records.getInt(address + offset);
+    }
+
+    public void setInt(int address, int offset, int value)
+    {
+        buffer_records.putInt(address + offset, value);
+    }
+
+    public long getLong(int address, int offset)
+    {
+        return buffer_records.getLong(address + offset);
+    }
+
+    public void setLong(int address, int offset, long value)
+    {
+        buffer_records.putLong(address + offset, value);
+    }
+
+    public short getShort(int address, int offset)
+    {
+        return buffer_records.getShort(address + offset);
+    }
+
+    public void setShort(int address, int offset, short value)
+    {
+        buffer_records.putShort(address + offset, value);
+    }
+
+    public char getChar(int address, int offset)
+    {
+        return buffer_records.getChar(address + offset);
+    }
+
+    public void setChar(int address, int offset, char value)
+    {
+        buffer_records.putChar(address + offset, value);
+    }
+
+    public byte getByte(int address, int offset)
+    {
+        return buffer_records.get(address + offset);
+    }
+
+    public void setByte(int address, int offset, byte value)
+    {
+        buffer_records.put(address + offset, value);
+    }
+
+    public boolean getBoolean(int address, int offset)
+    {
+        return buffer_records.get(address + offset) != 0;
+    }
+
+    public void setBoolean(int address, int offset, boolean value)
+    {
+        buffer_records.put(address + offset, (byte)(value ? 1 : 0));
+    } /* FIELD ACCESSORS END */
+
+    /* ===== COPY FUNCTIONS ===== */
+    /* copies a record into a heap instance. returns 1 on success */
+    public int load(long handle, T target)
+    {
+        int address = address(handle);
+        if (address < 0)
+        {
+            System.err.printf("COULD NOT LOAD ARENA HANDLE: %x\n", handle);
+            return 0;
+        }
+        return layout.load(target, i -> get(address + layout_offsets[i],
+            layout.layout_types[i]));
+    }
+
+    /* copies a heap instance into a record. returns 1 on success */
+    public int store(long handle, T source)
+    {
+        int address = address(handle);
+        if (address < 0)
+        {
+            System.err.printf("COULD NOT STORE ARENA HANDLE: %x\n", handle);
+            return 0;
+        }
+        return layout.store(source, (value, i) ->
+            set(address + layout_offsets[i], layout.layout_types[i], value));
+    }
+
+    /* boxed access to a field of any primitive type */
+    private Object get(int at, Class<?> t)
+    {
+        if (t == float.class) return getFloat(at, 0);
+        if (t == double.class) return getDouble(at, 0);
+        if (t == int.class) return getInt(at, 0);
+        if (t == long.class) return getLong(at, 0);
+        if (t == short.class) return getShort(at, 0);
+        if (t == char.class) return getChar(at, 0);
+        if (t == byte.class) return getByte(at, 0);
+        return getBoolean(at, 0);
+    }
+
+    private void set(int at, Class<?> t, Object value)
+    {
+        if (t == float.class) setFloat(at, 0, (float)value);
+        else if (t == double.class) setDouble(at, 0, (double)value);
+        else if (t == int.class) setInt(at, 0, (int)value);
+        else if (t == long.class) setLong(at, 0, (long)value);
+        else if (t == short.class) setShort(at, 0, (short)value);
+        else if (t == char.class) setChar(at, 0, (char)value);
+        else if (t == byte.class) setByte(at, 0, (byte)value);
+        else setBoolean(at, 0, (boolean)value);
+    } /* COPY FUNCTIONS END */
+
+    /* ===== GROW FUNCTION ===== */
+    /* moves the records into a buffer that holds the given number */
+    /* of records. handles stay valid, addresses do not */
+    private boolean grow(int records)
+    {
+        records = Math.max(records, MININITRECORDS);
+        long bytes = (long)records * info_stride;
+        if (records <= info_capacity || bytes > Integer.MAX_VALUE)
+        {
+            System.err.printf("COULD NOT GROW ARENA: %s\n", type.getName());
+            return false;
+        }
+
+        ByteBuffer next;
+        if (info_channel == null)
+        {
+            next = ByteBuffer.allocateDirect((int)bytes);
+            if (buffer_records != null)
+                next.put(0, buffer_records, 0, info_bumped * info_stride);
+        }
+        else
+        {
+            /* remapping the file keeps the old contents in place */
+            try
+            {
+                next = info_channel.map(FileChannel.MapMode.READ_WRITE,
+                    0, bytes);
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("COULD NOT MAP ARENA FILE: %s\n",
+                    type.getName());
+                return false;
+            }
+        }
+
+        buffer_records = next.order(ByteOrder.nativeOrder());
+        buffer_generations = Arrays.copyOf(buffer_generations, records);
+        info_capacity = records;
+        return true;
+    } /* GROW FUNCTION END */
+
+    /* ===== CLOSE FUNCTION ===== */
+    /* lets go of every record and closes the mapped file, if any. */
+    /* handles from before are stale. a direct arena starts over */
+    /* empty on the next alloc, a mapped one can't grow again */
+    public void close()
+    {
+        info_lock.lock();
+        try
+        {
+            buffer_records = null;
+            buffer_generations = new int[0];
+            info_capacity = 0;
+            info_bumped = 0;
+            info_count = 0;
+            list_freeHead = ENDLINK;
+            if (info_channel == null) return;
+            try { info_channel.close(); }
+            catch (IOException exception)
+            {
+                System.err.printf("COULD NOT CLOSE ARENA FILE: %s\n",
+                    type.getName());
+            }
+        }
+        finally { info_lock.unlock(); }
+    } /* CLOSE FUNCTION END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,450 @@
+/* <MemColumns.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  A columnar (struct-of-arrays) pool for flat classes whose fields
+ *  are all primitives, like Vect. Each field is kept in it's own
+ *  primitive array, so Vect becomes three float[] columns x, y and
+ *  z. Live records are kept packed at the front of the columns:
+ *  freeing a record moves the last live record into it's place. A
+ *  loop over every live instance is then a straight walk over
+ *  count() elements of each column, with no pointer chasing and no
+ *  holes to skip.
+ *
+ *  Records are allocated and freed through Mem-style handles.
+ *  Because records move when others are freed, a handle is turned
+ *  into the record's current index with index(), which stays valid
+ *  until the next free.
+ *
+ *  The add, scale and addScaled bulk operations over float columns
+ *  use the Vector API kernels of MemSimd when the VM was started
+ *  with --add-modules jdk.incubator.vector, and plain loops
+ *  otherwise. MemSimd is built apart from the rest of the library
+ *  and found reflectively, so nothing else needs the module. map
+ *  takes any function, so it always runs a plain loop:
+ *
+ *      MemColumns<Vect> c = MemColumns.create(Vect.class, 0x1000);
+ *      long h = c.alloc();
+ *      c.floats("x")[c.index(h)] = 1.0f;
+ *      c.addScaled("x", "y", dt);
+ *
+ *  alloc and free are thread safe. Column access and bulk
+ *  operations are not guarded, and growing the pool replaces the
+ *  column arrays, so they must not race with an alloc.
+ *
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Private class macros
+ *  - Public class flags
+ *  - Info members
+ *  - Buffer members
+ *  - Layout members
+ *  - Create function
+ *  - Constructor
+ *  - Alloc function
+ *  - Free function
+ *  - Index functions
+ *  - Column getters
+ *  - Bulk functions
+ *  - Kernel functions
+ *  - Copy functions
+ *  - Grow functions
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import java.util.function.*;
+ import java.lang.invoke.*;
+ import java.lang.reflect.*;
+ import java.util.concurrent.locks.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemColumns<T>
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int MININITRECORDS = 0x10;
+    private static final int ENDLINK = -1;
+
+    /* Vector API kernels, null unless the module was added to the */
+    /* VM and MemSimd was built and initialized */
+    private static final Class<?> SIMDCLASS = simdClass();
+    private static final MethodHandle SIMDADD = kernel("add",
+        float[].class, int.class, float.class);
+    private static final MethodHandle SIMDSCALE = kernel("scale",
+        float[].class, int.class, float.class);
+    private static final MethodHandle SIMDADDSCALED = kernel("addScaled",
+        float[].class, float[].class, int.class, float.class);
+
+    /* ===== PUBLIC CLASS FLAGS ===== */
+    /* bulk operations use the Vector API. has no effect unless the */
+    /* jdk.incubator.vector module was added to the VM */
+    public static boolean simd_mode = SIMDADD != null;
+
+    /* ===== INFO MEMBERS ===== */
+    final Class<T> type;
+    int info_capacity = 0; /* records the columns can hold */
+    int info_count = 0; /* live records, packed at the front */
+    int info_slots = 0; /* slots at or above this were never used */
+    int info_generation = 0;
+    int list_freeHead = ENDLINK;
+    final ReentrantLock info_lock = new ReentrantLock();
+
+    /* ===== BUFFER MEMBERS ===== */
+    Object[] buffer_columns; /* one primitive array per field */
+    int[] buffer_generations; /* per slot, 0 means the slot is free */
+    int[] buffer_dense; /* slot to record index, next free slot if free */
+    int[] buffer_owners; /* record index to slot */
+
+    /* ===== LAYOUT MEMBERS ===== */
+    final MemLayout layout; /* one column per field */
+    Object[] layout_zeros; /* one zeroed element per column */
+
+    /* ===== CREATE FUNCTION ===== */
+    /* returns null if the type has a field that is not a primitive */
+    public static <T> MemColumns<T> create(Class<T> type, int capacity)
+    {
+        MemLayout layout = MemLayout.scan(type, "COLUMNS", false);
+        if (layout == null) return null;
+
+        MemColumns<T> columns = new MemColumns<T>(type, layout);
+        columns.growColumns(Math.max(capacity, MININITRECORDS));
+        columns.growSlots(Math.max(capacity, MININITRECORDS));
+        return columns;
+    } /* CREATE FUNCTION END */
+
+    /* ===== CONSTRUCTOR ===== */
+    private MemColumns(Class<T> type, MemLayout layout)
+    {
+        this.type = type;
+        this.layout = layout;
+
+        int count = layout.count();
+        layout_zeros = new Object[count];
+        buffer_columns = new Object[count];
+        for (int i = 0; i < count; i++)
+        {
+            layout_zeros[i] = Array.newInstance(layout.layout_types[i], 1);
+            buffer_columns[i] = Array.newInstance(layout.layout_types[i], 0);
+        }
+
+        buffer_generations = new int[0];
+        buffer_dense = new int[0];
+        buffer_owners = new int[0];
+    } /* CTOR END */
+
+    /* ===== ALLOC FUNCTION ===== */
+    /* returns a handle to a zeroed record at index count() - 1 */
+    public long alloc()
+    {
+        info_lock.lock();
+        try
+        {
+            int slot;
+            if (list_freeHead != ENDLINK)
+            {
+                slot = list_freeHead;
+                list_freeHead = buffer_dense[slot];
+            }
+            else
+            {
+                if (info_slots == buffer_generations.length)
+                    growSlots(buffer_generations.length * 2);
+                slot = info_slots++;
+            }
+
+            if (info_count == info_capacity) growColumns(info_capacity * 2);
+
+            /* the record may hold whatever was last moved out of it */
+            int index = info_count++;
+            for (int i = 0; i < buffer_columns.length; i++)
+            {
+                System.arraycopy(layout_zeros[i], 0, buffer_columns[i],
+                    index, 1);
+            }
+
+            info_generation = MemLayout.nextGeneration(info_generation);
+            buffer_generations[slot] = info_generation;
+            buffer_dense[slot] = index;
+            buffer_owners[index] = slot;
+            return MemLayout.handle(info_generation, slot);
+        }
+        finally { info_lock.unlock(); }
+    } /* ALLOC FUNCTION END */
+
+    /* ===== FREE FUNCTION ===== */
+    /* moves the last live record into the freed one's place. */
+    /* returns 1 on success, 0 if the handle is stale */
+    public int free(long handle)
+    {
+        info_lock.lock();
+        try
+        {
+            int slot = MemLayout.resolve(handle, buffer_generations,
+                info_slots);
+            if (slot < 0)
+            {
+                System.err.printf("COULD NOT FREE COLUMNS HANDLE: %x\n",
+                    handle);
+                return 0;
+            }
+
+            int index = buffer_dense[slot];
+            int last = --info_count;
+            if (index != last)
+            {
+                for (int i = 0; i < buffer_columns.length; i++)
+                {
+                    System.arraycopy(buffer_columns[i], last,
+                        buffer_columns[i], index, 1);
+                }
+                int moved = buffer_owners[last];
+                buffer_owners[index] = moved;
+                buffer_dense[moved] = index;
+            }
+
+            buffer_generations[slot] = 0;
+            buffer_dense[slot] = list_freeHead;
+            list_freeHead = slot;
+            return 1;
+        }
+        finally { info_lock.unlock(); }
+    } /* FREE FUNCTION END */
+
+    /* ===== INDEX FUNCTIONS ===== */
+    /* returns the current index of a record in every column, or -1 */
+    /* if the handle is stale. valid until the next free */
+    public int index(long handle)
+    {
+        int slot = MemLayout.resolve(handle, buffer_generations, info_slots);
+        return slot < 0 ? -1 : buffer_dense[slot];
+    }
+
+    /* live records sit at indices 0 to count() - 1 */
+    public int count()
+    {
+        return info_count;
+    }
+
+    public int capacity()
+    {
+        return info_capacity;
+    } /* INDEX FUNCTIONS END */
+
+    /* ===== COLUMN GETTERS ===== */
+    /* returns the primitive array holding a field, or null if the */
+    /* type has no such field. only the first count() elements are */
+    /* live, and the array is replaced when the pool grows */
+    public Object column(String field)
+    {
+        int i = layout.index(field);
+        return i < 0 ? null : buffer_columns[i];
+    }
+
+    public float[] floats(String field)
+    {
+        return (float[])typed(field, float.class);
+    }
+
+    public double[] doubles(String field)
+    {
+        return (double[])typed(field, double.class);
+    }
+
+    public int[] ints(String field)
+    {
+        return (int[])typed(field, int.class);
+    }
+
+    public long[] longs(String field)
+    {
+        return (long[])typed(field, long.class);
+    }
+
+    private Object typed(String field, Class<?> component)
+    {
+        int i = layout.index(field);
+        if (i < 0 || layout.layout_types[i] != component)
+        {
+            System.err.printf("COULD NOT FIND %s COLUMN: %s\n",
+                component.getName(), field);
+            return null;
+        }
+        return buffer_columns[i];
+    } /* COLUMN GETTERS END */
+
+    /* ===== BULK FUNCTIONS ===== */
+    /* calls the consumer with the index of every live record */
+    public void forEachLive(IntConsumer action)
+    {
+        for (int i = 0; i < info_count; i++)
+        {
+            action.accept(i);
+        }
+    }
+
+    /* replaces every live element of a float column with */
+    /* op(element). op is opaque to the Vector API, so this is */
+    /* always a plain loop, use add, scale or addScaled where they */
+    /* fit */
+    public int map(String field, DoubleUnaryOperator op)
+    {
+        float[] a = floats(field);
+        if (a == null) return 0;
+        for (int i = 0; i < info_count; i++)
+        {
+            a[i] = (float)op.applyAsDouble(a[i]);
+        }
+        return 1;
+    }
+
+    /* adds a value to every live element of a float column */
+    public int add(String field, float value)
+    {
+        float[] a = floats(field);
+        if (a == null) return 0;
+        if (simd_mode && SIMDADD != null)
+        {
+            try { SIMDADD.invokeExact(a, info_count, value); }
+            catch (Throwable exception) { throw kernelFailed(exception); }
+            return 1;
+        }
+        for (int i = 0; i < info_count; i++)
+        {
+            a[i] += value;
+        }
+        return 1;
+    }
+
+    /* multiplies every live element of a float column by a value */
+    public int scale(String field, float value)
+    {
+        float[] a = floats(field);
+        if (a == null) return 0;
+        if (simd_mode && SIMDSCALE != null)
+        {
+            try { SIMDSCALE.invokeExact(a, info_count, value); }
+            catch (Throwable exception) { throw kernelFailed(exception); }
+            return 1;
+        }
+        for (int i = 0; i < info_count; i++)
+        {
+            a[i] *= value;
+        }
+        return 1;
+    }
+
+    /* dst += src * k over every live record, as in position += */
+    /* velocity * dt */
+    public int addScaled(String dst, String src, float k)
+    {
+        float[] d = floats(dst);
+        float[] s = floats(src);
+        if (d == null || s == null) return 0;
+        if (simd_mode && SIMDADDSCALED != null)
+        {
+            try { SIMDADDSCALED.invokeExact(d, s, info_count, k); }
+            catch (Throwable exception) { throw kernelFailed(exception); }
+            return 1;
+        }
+        for (int i = 0; i < info_count; i++)
+        {
+            d[i] += s[i] * k;
+        }
+        return 1;
+    } /* BULK FUNCTIONS END */
+
+    /* ===== KERNEL FUNCTIONS ===== */
+    /* loads and initializes MemSimd once the module is known to */
+    /* be present, so kernels can't fail to link once running. */
+    /* returns null if it can't be loaded */
+    private static Class<?> simdClass()
+    {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .isPresent()) return null;
+        try
+        {
+            return Class.forName("MemSimd", true,
+                MemColumns.class.getClassLoader());
+        }
+        catch (ClassNotFoundException | LinkageError exception)
+        {
+            System.err.printf("COULD NOT LOAD SIMD KERNELS: %s\n", exception);
+            return null;
+        }
+    }
+
+    /* finds a static void kernel of MemSimd, null if none */
+    private static MethodHandle kernel(String name, Class<?>... params)
+    {
+        if (SIMDCLASS == null) return null;
+        try
+        {
+            return MethodHandles.lookup().findStatic(SIMDCLASS, name,
+                MethodType.methodType(void.class, params));
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            System.err.printf("COULD NOT FIND SIMD KERNEL: %s\n", name);
+            return null;
+        }
+    }
+
+    /* kernels declare no checked exceptions, so anything they throw */
+    /* is passed on as is. a kernel may have applied part of the */
+    /* operation, so it is never rerun as a loop */
+    private static RuntimeException kernelFailed(Throwable exception)
+    {
+        if (exception instanceof Error) throw (Error)exception;
+        if (exception instanceof RuntimeException)
+            return (RuntimeException)exception;
+        return new IllegalStateException(exception);
+    } /* KERNEL FUNCTIONS END */
+
+    /* ===== COPY FUNCTIONS ===== */
+    /* copies a record into a heap instance. returns 1 on success */
+    public int load(long handle, T target)
+    {
+        int index = index(handle);
+        if (index < 0)
+        {
+            System.err.printf("COULD NOT LOAD COLUMNS HANDLE: %x\n", handle);
+            return 0;
+        }
+        return layout.load(target, i -> Array.get(buffer_columns[i], index));
+    }
+
+    /* copies a heap instance into a record. returns 1 on success */
+    public int store(long handle, T source)
+    {
+        int index = index(handle);
+        if (index < 0)
+        {
+            System.err.printf("COULD NOT STORE COLUMNS HANDLE: %x\n",
+                handle);
+            return 0;
+        }
+        return layout.store(source, (value, i) ->
+            Array.set(buffer_columns[i], index, value));
+    } /* COPY FUNCTIONS END */
+
+    /* ===== GROW FUNCTIONS ===== */
+    private void growColumns(int records)
+    {
+        for (int i = 0; i < buffer_columns.length; i++)
+        {
+            Object next = Array.newInstance(layout.layout_types[i], records);
+            System.arraycopy(buffer_columns[i], 0, next, 0, info_count);
+            buffer_columns[i] = next;
+        }
+        buffer_owners = Arrays.copyOf(buffer_owners, records);
+        info_capacity = records;
+    }
+
+    private void growSlots(int slots)
+    {
+        buffer_generations = Arrays.copyOf(buffer_generations, slots);
+        buffer_dense = Arrays.copyOf(buffer_dense, slots);
+    } /* GROW FUNCTIONS END */
+ } /* END CLASS BLOCK */
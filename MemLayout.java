@@ -0,0 +1,173 @@
+/* <MemLayout.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  The record layout shared by MemArena and MemColumns. Both keep
+ *  the fields of a flat class, one whose fields are all primitives,
+ *  outside of heap objects. A layout collects those fields, reaches
+ *  them on heap instances for load and store, and makes and checks
+ *  the generation handles both hand out: index in the low word,
+ *  generation in the high word, generation 0 marking a free record.
+ *
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Layout members
+ *  - Scan function
+ *  - Constructor
+ *  - Field functions
+ *  - Generation functions
+ *  - Copy functions
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import java.util.function.*;
+ import java.lang.invoke.*;
+ import java.lang.reflect.*;
+
+ /* ===== CLASS BLOCK ===== */
+ final class MemLayout
+ {
+    /* ===== LAYOUT MEMBERS ===== */
+    final String[] layout_names;
+    final Class<?>[] layout_types;
+    final VarHandle[] layout_fields; /* heap fields, null if hidden */
+
+    /* ===== SCAN FUNCTION ===== */
+    /* collects every instance field of type and it's superclasses, */
+    /* widest first when asked. returns null if a field is not a */
+    /* primitive, naming the creator in the error */
+    static MemLayout scan(Class<?> type, String creator, boolean widestFirst)
+    {
+        ArrayList<Field> fields = new ArrayList<Field>();
+        for (Class<?> c = type; c != Object.class && c != null;
+            c = c.getSuperclass())
+        {
+            for (Field f : c.getDeclaredFields())
+            {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                if (!f.getType().isPrimitive())
+                {
+                    System.err.printf(
+                        "COULD NOT CREATE %s: Field %s is not primitive\n",
+                        creator, f.getName());
+                    return null;
+                }
+                fields.add(f);
+            }
+        }
+
+        if (widestFirst)
+            fields.sort((a, b) -> sizeOf(b.getType()) - sizeOf(a.getType()));
+        return new MemLayout(fields);
+    } /* SCAN FUNCTION END */
+
+    /* ===== CONSTRUCTOR ===== */
+    private MemLayout(ArrayList<Field> fields)
+    {
+        int count = fields.size();
+        layout_names = new String[count];
+        layout_types = new Class<?>[count];
+        layout_fields = new VarHandle[count];
+        for (int i = 0; i < count; i++)
+        {
+            Field f = fields.get(i);
+            layout_names[i] = f.getName();
+            layout_types[i] = f.getType();
+
+            try
+            {
+                layout_fields[i] = MethodHandles.privateLookupIn(
+                    f.getDeclaringClass(), MethodHandles.lookup())
+                    .unreflectVarHandle(f);
+            }
+            catch (IllegalAccessException exception)
+            {
+                /* records stay usable, only load/store fail */
+                layout_fields[i] = null;
+            }
+        }
+    } /* CTOR END */
+
+    /* ===== FIELD FUNCTIONS ===== */
+    int count()
+    {
+        return layout_names.length;
+    }
+
+    /* returns the position of a field in the layout, -1 if none */
+    int index(String field)
+    {
+        for (int i = 0; i < layout_names.length; i++)
+        {
+            if (layout_names[i].equals(field)) return i;
+        }
+        return -1;
+    }
+
+    static int sizeOf(Class<?> primitive)
+    {
+        if (primitive == long.class || primitive == double.class) return 8;
+        if (primitive == int.class || primitive == float.class) return 4;
+        if (primitive == short.class || primitive == char.class) return 2;
+        return 1; /* byte, boolean */
+    } /* FIELD FUNCTIONS END */
+
+    /* ===== GENERATION FUNCTIONS ===== */
+    /* returns the generation after the given one, never 0 */
+    static int nextGeneration(int generation)
+    {
+        generation = (generation + 1) & Integer.MAX_VALUE;
+        return generation == 0 ? 1 : generation;
+    }
+
+    static long handle(int generation, int index)
+    {
+        return ((long)generation << 32) | index;
+    }
+
+    /* returns the index of a handle's record, or -1 if the handle */
+    /* is stale or not below limit */
+    static int resolve(long handle, int[] generations, int limit)
+    {
+        int index = (int)handle;
+        int generation = (int)(handle >>> 32);
+        if (generation == 0 || index < 0 || index >= limit ||
+            generations[index] != generation) return -1;
+        return index;
+    } /* GENERATION FUNCTIONS END */
+
+    /* ===== COPY FUNCTIONS ===== */
+    /* sets each field of target to values.apply(field). returns 1 */
+    /* on success, 0 if a field can't be reached */
+    int load(Object target, IntFunction<Object> values)
+    {
+        for (int i = 0; i < layout_fields.length; i++)
+        {
+            if (!reachable(i)) return 0;
+            layout_fields[i].set(target, values.apply(i));
+        }
+        return 1;
+    }
+
+    /* hands each field of source to values.accept(value, field). */
+    /* returns 1 on success, 0 if a field can't be reached */
+    int store(Object source, ObjIntConsumer<Object> values)
+    {
+        for (int i = 0; i < layout_fields.length; i++)
+        {
+            if (!reachable(i)) return 0;
+            values.accept(layout_fields[i].get(source), i);
+        }
+        return 1;
+    }
+
+    private boolean reachable(int field)
+    {
+        if (layout_fields[field] != null) return true;
+        System.err.printf("COULD NOT ACCESS FIELD: %s\n", layout_names[field]);
+        return false;
+    } /* COPY FUNCTIONS END */
+ } /* END CLASS BLOCK */
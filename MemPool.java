@@ -0,0 +1,3735 @@
+/* <MemPool.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  The goal of this class is to provide storage/caching of references
+ *  to already initialized objects so that they may be reused as
+ *  opposed to being discarded for the GC to consume. This library is
+ *  meant to mimic the C-style of allocating and freeing memory.
+ *  
+ *  An ideal use of this class is within a large loop which frequently
+ *  allocates memory to the heap. Instead of discarding the allocated
+ *  data once the variable scope is over, it's reference will be saved
+ *  to the "backend" of this class, and may be reused on the next loop
+ *  iteration.
+ * 
+ *  Every MemPool is independent: it has it's own pages, geometry,
+ *  caches, limits, counters, trimmer and flags, and it's own lock.
+ *  A hot subsystem can be given a pool of it's own, sized for it
+ *  and torn down with close() without touching any other pool. The
+ *  static Mem class fronts a default pool for everyone else.
+ * 
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Concurrency flags
+ *  - Adaptive flags
+ *  - Placement flags
+ *  - Leak flags
+ *  - Event flags
+ *  - Stat members
+ *  - JFR event classes
+ *  - Trace function
+ *  - Private class macros
+ *  - Internal "Page" class definition
+ *      - Page info members
+ *      - Page buffer members
+ *      - Page freelist members
+ *      - Page directory members
+ *      - Page generation member
+ *      - Page idle member
+ *      - Page constructor
+ *      - Page grow functions
+ *      - Page slot functions
+ *      - Page info retrival function
+ *      - Page div index function
+ *      - Page allocate function
+ *      - Page allocate batch function
+ *      - Page take function
+ *      - Page release function
+ *      - Page unlist function
+ *      - Page forcefree function
+ *      - Page buffer dump function
+ *      - Page unindex function
+ *      - Page adopt function
+ *      - Page evict function
+ *      - Page shed function
+ *  - Internal "SlotIndex" class definition
+ *      - SlotIndex info members
+ *      - SlotIndex buffer members
+ *      - SlotIndex constructor
+ *      - SlotIndex hash function
+ *      - SlotIndex get function
+ *      - SlotIndex put function
+ *      - SlotIndex remove function
+ *      - SlotIndex resize function
+ *  - Internal "TypeInfo" class definition
+ *      - TypeInfo members
+ *      - TypeInfo limit members
+ *      - TypeInfo demand members
+ *      - TypeInfo directory members
+ *      - TypeInfo constructor
+ *      - TypeInfo over quota function
+ *      - TypeInfo demand functions
+ *      - TypeInfo partial push function
+ *      - TypeInfo partial pop function
+ *  - Info members
+ *  - Buffer members
+ *  - Directory members
+ *  - Geometry members
+ *  - Slot bits function
+ *  - Configure function
+ *  - Constructors
+ *  - Generation members
+ *  - Next generation function
+ *  - Lock member
+ *  - Internal "Magazine" class definition
+ *      - Magazine info members
+ *      - Magazine buffer members
+ *      - Magazine constructor
+ *      - Magazine stack function
+ *      - Magazine allocate function
+ *      - Magazine free function
+ *      - Magazine flush function
+ *  - Internal "MagazineRef" class definition
+ *  - Magazine members
+ *  - Collect magazines function
+ *  - Internal "Depot" class definition
+ *      - Depot info members
+ *      - Depot buffer members
+ *      - Depot constructor
+ *      - Depot take function
+ *      - Depot put function
+ *      - Depot refill function
+ *      - Depot drain function
+ *  - Depot members
+ *  - Depot start function
+ *  - Virtual thread function
+ *  - Lend functions
+ *  - Cache functions
+ *  - Depot allocate function
+ *  - Depot free function
+ *  - Index members
+ *  - Index value functions
+ *  - Index of function
+ *  - Internal "LeakRef" class definition
+ *  - Leak members
+ *  - Lease functions
+ *  - Leak table functions
+ *  - Untrack function
+ *  - Collect leaks function
+ *  - TypeInfo members
+ *  - TypeInfo function
+ *  - Array typeinfo members
+ *  - Array bin function
+ *  - Array typeinfo function
+ *  - Make factory function
+ *  - Register function
+ *  - Allocate slot function
+ *  - Internal "PageView" class definition
+ *  - Place slot function
+ *  - Policy page function
+ *  - Create page function
+ *  - Open push function
+ *  - Slot handle function
+ *  - Allocate object function
+ *  - Allocate scoped function
+ *  - Alloc function
+ *  - Allocate batch function
+ *  - Allocate array function
+ *  - Handle functions
+ *  - Allochandle function
+ *  - Get function
+ *  - Trim mark function
+ *  - Trim unmark function
+ *  - Page clean function
+ *  - Trim function
+ *  - Drop page function
+ *  - Compact function
+ *  - Rehome function
+ *  - Clock function
+ *  - Limit function
+ *  - Limit array function
+ *  - Shallow size functions
+ *  - Evict function
+ *  - Adapt function
+ *  - Reserve function
+ *  - Reserve batch function
+ *  - Reserve room function
+ *  - Build function
+ *  - Reserve locked function
+ *  - Place locked function
+ *  - Shed locked function
+ *  - Trimmer members
+ *  - Start trimmer function
+ *  - Trimmer watch function
+ *  - Stop trimmer function
+ *  - Trimmer loop function
+ *  - Free function
+ *  - Free any function
+ *  - Free object function
+ *  - Handle free function
+ *  - Bulk free function
+ *  - Batch members
+ *  - Free batch function
+ *  - Free array function
+ *  - Scope members
+ *  - Scope function
+ *  - Close scope function
+ *  - Flush magazine function
+ *  - Flush depots function
+ *  - Close function
+ *  - Stats function
+ *  - Internal "StatsBean" class definition
+ *  - Register mbean function
+ *  - Dump function
+ *  - Pagedump function
+ *  - Pagespec function
+ *  - Indexdump function
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import java.util.function.*;
+ import java.lang.invoke.*;
+ import java.util.concurrent.*;
+ import java.util.concurrent.locks.*;
+ import java.util.concurrent.atomic.*;
+ import java.lang.ref.*;
+ import java.util.stream.*;
+ import java.lang.management.*;
+ import javax.management.*;
+ import javax.management.openmbean.*;
+ import jdk.jfr.*;
+ import javax.swing.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemPool
+ {
+    /* ===== CONCURRENCY FLAGS ===== */
+    /* when set, each thread allocates from and frees to it's own */
+    /* magazine of instances, only locking to trade in batches */
+    /* with the shared pages. set before starting worker threads. */
+    /* virtual threads use the depots of lockfree mode instead */
+    public boolean concurrent_mode = false;
+
+    /* when set, alloc and free trade instances through lock free */
+    /* depots shared by all threads, one per class, and only lock */
+    /* to refill or drain a depot. unlike magazines nothing is */
+    /* stranded when a thread exits, which suits many short lived */
+    /* or virtual threads. takes precedence over concurrent mode */
+    public boolean lockfree_mode = false;
+
+    /* ===== ADAPTIVE FLAGS ===== */
+    /* when set, each trimmer pass sizes the free instances of */
+    /* every class from it's recent demand. see adapt() */
+    public boolean adaptive_mode = false;
+
+    /* ===== PLACEMENT FLAGS ===== */
+    /* when set, decides the page of each alloc that misses the */
+    /* page it's class last allocated from. null keeps the pool's */
+    /* own directories. see PlacementPolicy */
+    public PlacementPolicy placement_policy = null;
+
+    /* ===== LEAK FLAGS ===== */
+    /* when set, the pool only keeps a weak reference to each object */
+    /* it hands out, so one dropped without a free is noticed once */
+    /* the GC takes it, and reported. allocs go through the lock, */
+    /* bypassing magazines and depots. handles and objects of a */
+    /* scope are freed by the pool's own records, so they are not */
+    /* tracked. see collectLeaks() */
+    public boolean leak_tracking = false;
+
+    /* when set, the slot of a leaked object goes back to it's page */
+    /* instead of staying used for good */
+    public boolean leak_reclaim = false;
+
+    /* one tracked alloc in this many records it's stack, printed */
+    /* should the object leak. leaks of the others are only */
+    /* counted. 1 records all, 0 none */
+    public int leak_sampling = 0x40;
+
+    /* ===== EVENT FLAGS ===== */
+    /* when set, frees and page creation emit JFR events. frees */
+    /* are only recorded when slower than the event threshold */
+    public boolean jfr_events = false;
+
+    /* ===== STAT MEMBERS ===== */
+    /* always on, striped so magazine threads never contend */
+    private final LongAdder stat_allocs = new LongAdder();
+    private final LongAdder stat_frees = new LongAdder();
+    private final LongAdder stat_failedFrees = new LongAdder();
+    private final LongAdder stat_magazineAllocs = new LongAdder();
+    private final LongAdder stat_magazineFrees = new LongAdder();
+    private final LongAdder stat_constructs = new LongAdder();
+    private final LongAdder stat_currentHits = new LongAdder();
+    private final LongAdder stat_slowAllocs = new LongAdder();
+    private final LongAdder stat_scanSteps = new LongAdder();
+    private final LongAdder stat_pagesCreated = new LongAdder();
+    private final LongAdder stat_pagesCleaned = new LongAdder();
+    private final LongAdder stat_pressureTrims = new LongAdder();
+    private final LongAdder stat_evictions = new LongAdder();
+    private final LongAdder stat_leaks = new LongAdder();
+    private final LongAdder stat_leaksReclaimed = new LongAdder();
+
+    /* ===== JFR EVENT CLASSES ===== */
+    @Name("Mem.SlowFree")
+    @Label("Mem Slow Free")
+    @Category("Mem")
+    @Threshold("10 us")
+    static final class SlowFreeEvent extends jdk.jfr.Event
+    {
+        @Label("Object Class") public Class objectClass;
+        @Label("Freed") public boolean freed;
+    }
+
+    @Name("Mem.PageCreate")
+    @Label("Mem Page Create")
+    @Category("Mem")
+    static final class PageCreateEvent extends jdk.jfr.Event
+    {
+        @Label("Page Index") public int pageIndex;
+        @Label("Page Size") public int pageSize;
+        @Label("Page Count") public int pageCount;
+    }
+
+    /* ===== TRACE FUNCTION ===== */
+    /* records an event while MemTrace is running. arguments are */
+    /* plain ints, so a disabled trace costs one volatile read */
+    private void trace(int type, int page, int slot, int classId)
+    {
+        if (MemTrace.enabled) MemTrace.record(type, page, slot, classId);
+    }
+
+    /* ===== CLASS MACROS ===== */
+    private static final int PAGESIZE = 0x200;
+    private static final int DIVERSITY = 0x20;
+    private static final int USED = 0b01000000; /* one off from sign */
+    private static final int CACHED = 0b10000000; /* used, held by a cache */
+    private static final int DIVMASK = USED - 1; /* div bits of divField */
+    private static final int INDEXSIZE = 0x400;
+    private static final int INDEXEMPTY = -1;
+    private static final int LISTEND = -1;
+    private static final int HANDLEGENSHIFT = 32;
+    private static final int PAGECOUNT = 0x100; /* initial, grows */
+    private static final int MAXPAGESIZE = 0x10000;
+    private static final int MAXDIVERSITY = 0x40; /* below USED bit */
+    private static final int MAGAZINESIZE = 0x40;
+    private static final int MAGAZINETYPES = 0x4;
+    private static final int DIRECTORYSIZE = 0x10;
+    private static final int COMPACTRATIO = 0x4; /* live slots 1 in */
+    private static final int PAGEINITSLOTS = 0x10; /* grows to page size */
+    private static final int PAGEINITDIVS = 0x4; /* grows to diversity */
+    private static final int CLOCKSHIFT = 20; /* nanos to clock ticks */
+    private static final int DEMANDWINDOW = 0x8; /* adapt passes */
+    private static final int RESERVESTEP = 0x400; /* per class and pass */
+    private static final int PARALLELRESERVE = 0x1000; /* instances */
+    private static final int MAXARRAYBIN = 0x1E; /* 1 << 30 elements */
+    private static final int DEPOTSIZE = 0x100; /* free instances */
+    private static final int DEPOTREFILL = 0x40; /* per locked refill */
+    private static final int LENTBITS = 16; /* lent table of 1 << 16 */
+    private static final int LENTPROBE = 0x8; /* slots tried per lend */
+    private static final int LENTOVERFLOW = 0x10; /* initial, grows */
+    private static final int LEAKTABLE = 0x100; /* initial buckets */
+
+    /* ===== PAGE CLASS ===== */
+    private class Page
+    {
+        /* ===== PAGE INFO MEMBERS ===== */
+        public int info_diversity = 0;
+        public int info_bufferuse = 0;
+        public final int info_index; /* index in page buffer */
+        public final int info_size; /* slot count */
+        public final int info_divSize; /* class count */
+        public int info_bumped = 0; /* slots below were used once */
+        public boolean info_dead = false; /* set once cleaned */
+        public boolean info_draining = false; /* freed slots retire */
+        public long info_emptySince = 0; /* nanoTime of last emptying */
+        
+        /* ===== PAGE BUFFER MEMBERS ===== */
+        /* all buffers start small and grow as slots are bumped */
+        private TypeInfo[] buffer_divMap; /* index map to each class */
+        private byte[] buffer_divField; /* class index field */
+        private Object[] buffer_data; /* object data buffer */
+
+        /* ===== PAGE FREELIST MEMBERS ===== */
+        private int[] buffer_next; /* intrusive next link of each slot */
+        private int[] list_typeHead; /* free instance list of each div */
+        private int list_holeHead = LISTEND; /* emptied slots below bump */
+
+        /* ===== PAGE DIRECTORY MEMBERS ===== */
+        private boolean[] list_listed; /* div's class lists this page */
+        private boolean list_candidate = false; /* on trim candidates */
+        private boolean list_open = false; /* in open directory */
+
+        /* ===== PAGE GENERATION MEMBER ===== */
+        private int[] buffer_generation; /* alloc stamp, 0 when free */
+
+        /* ===== PAGE IDLE MEMBER ===== */
+        private int[] buffer_freedAt; /* clock tick of last free */
+
+        /* ===== PAGE CONSTRUCTOR ===== */
+        public Page(int index, int size, int diversity)
+        {
+            info_index = index;
+            info_size = size;
+            info_divSize = diversity;
+
+            /* a zeroed divField is a free slot, and slots at or */
+            /* above the bump are never used, so only the free */
+            /* list heads need setting */
+            int slots = Math.min(size, PAGEINITSLOTS);
+            int divs = Math.min(diversity, PAGEINITDIVS);
+            buffer_divMap = new TypeInfo[divs];
+            list_listed = new boolean[divs];
+            list_typeHead = new int[divs];
+            Arrays.fill(list_typeHead, LISTEND);
+            buffer_divField = new byte[slots];
+            buffer_data = new Object[slots];
+            buffer_next = new int[slots];
+            buffer_generation = new int[slots];
+            buffer_freedAt = new int[slots];
+        } /* PAGE CTOR END */
+
+        /* ===== PAGE GROW FUNCTIONS ===== */
+        /* doubles the slot buffers, up to the page size */
+        private void growSlots()
+        {
+            int size = Math.min(buffer_data.length * 2, info_size);
+            buffer_divField = Arrays.copyOf(buffer_divField, size);
+            buffer_data = Arrays.copyOf(buffer_data, size);
+            buffer_next = Arrays.copyOf(buffer_next, size);
+            buffer_generation = Arrays.copyOf(buffer_generation, size);
+            buffer_freedAt = Arrays.copyOf(buffer_freedAt, size);
+        }
+
+        /* doubles the div buffers, up to the page diversity */
+        private void growDivs()
+        {
+            int old = buffer_divMap.length;
+            int size = Math.min(old * 2, info_divSize);
+            buffer_divMap = Arrays.copyOf(buffer_divMap, size);
+            list_listed = Arrays.copyOf(list_listed, size);
+            list_typeHead = Arrays.copyOf(list_typeHead, size);
+            Arrays.fill(list_typeHead, old, size, LISTEND);
+        } /* PAGE GROW FUNCTIONS END */
+
+        /* ===== PAGE SLOT FUNCTIONS ===== */
+        /* true if a slot without instance is left */
+        public boolean hasRoom()
+        {
+            return info_bumped < info_size || list_holeHead != LISTEND;
+        }
+
+        /* returns a slot without instance, emptied slots first, */
+        /* -1 when page is full */
+        private int claim()
+        {
+            int i = list_holeHead;
+            if (i != LISTEND)
+            {
+                list_holeHead = buffer_next[i];
+                buffer_next[i] = LISTEND;
+                return i;
+            }
+            i = info_bumped;
+            if (i == info_size) return -1;
+            if (i == buffer_data.length) growSlots();
+            info_bumped++;
+            buffer_next[i] = LISTEND;
+            return i;
+        }
+
+        /* lets go of a slot's instance, making it claimable again */
+        private void hole(int index)
+        {
+            buffer_data[index] = null;
+            buffer_divField[index] = 0;
+            buffer_next[index] = list_holeHead;
+            list_holeHead = index;
+            if (!list_open) openPush(this);
+        }
+
+        /* lets go of a slot's instance for good, the slot is never */
+        /* claimed again */
+        private void retire(int index)
+        {
+            buffer_data[index] = null;
+            buffer_divField[index] = 0;
+            buffer_next[index] = LISTEND;
+        } /* PAGE SLOT FUNCTIONS END */
+
+        /* ===== PAGE INFO RETRIVAL FUNCTION ===== */
+        public long getPageInfo()
+        {
+            return info_diversity | ((long)info_bufferuse << 32);
+        } /* PAGE INFO END */
+
+        /* ===== PAGE DIV INDEX FUNCTION ===== */
+        /* returns div index of class, adding it to the diversity */
+        /* map if needed. -1 on failure */
+        private int divIndex(TypeInfo info)
+        {
+            /* search for collision, if none, add class */
+            for (int i = 0; i < info_diversity; i++)
+            {
+                if (buffer_divMap[i] == info) return i;
+            } /* BUFFER SEARCH LOOP END */
+
+            /* only add class if it can be constructed */
+            if (info_diversity == info_divSize || !hasRoom())
+            {
+                trace(MemTrace.DIVFAIL, info_index, -1, info.info_id);
+                return -1;
+            }
+            if (info_diversity == buffer_divMap.length) growDivs();
+            buffer_divMap[info_diversity] = info;
+            trace(MemTrace.DIVCREATE, info_index, info_diversity,
+                info.info_id);
+            return info_diversity++;
+        } /* PAGE DIV INDEX FUNCTION END */
+
+        /* ===== PAGE ALLOCATE FUNCTION ===== */
+        /* returns slot index of object, -1 on failure. only reuses */
+        /* free instances unless construct is set */
+        public int alloc(TypeInfo info, boolean construct)
+        {
+            /* first, register class to diversity Map */
+            int typeIndex = divIndex(info);
+            if (typeIndex == -1) return -1;
+
+            return take(info, typeIndex, construct);
+        } /* PAGE ALLOC FUNCTION END */
+
+        /* ===== PAGE ALLOCATE BATCH FUNCTION ===== */
+        /* fills out[from, to) with instances of class from this */
+        /* page. returns count of instances placed */
+        public int allocBatch(TypeInfo info, Object[] out, int from, int to)
+        {
+            int typeIndex = divIndex(info);
+            if (typeIndex == -1) return 0;
+
+            int count = 0;
+            while (from + count < to)
+            {
+                int i = take(info, typeIndex, info.info_freeCount == 0);
+                if (i == -1) break;
+                out[from + count++] = lease(this, i);
+            }
+            return count;
+        } /* PAGE ALLOCATE BATCH FUNCTION END */
+
+        /* ===== PAGE TAKE FUNCTION ===== */
+        /* takes a slot for div, returns slot index, -1 on failure */
+        private int take(TypeInfo info, int typeIndex, boolean construct)
+        {
+            /* if data buffer is full, return failure */
+            if (info_bufferuse >= info_size) return -1;
+
+            /* first, try to pop a free instance of matching div */
+            int i;
+            while ((i = list_typeHead[typeIndex]) != LISTEND)
+            {
+                /* unlink slot */
+                list_typeHead[typeIndex] = buffer_next[i];
+                buffer_next[i] = LISTEND;
+                info.info_freeCount--;
+
+                /* soft instances may have been taken by the GC */
+                if (info.info_soft)
+                {
+                    Object instance = ((SoftReference)buffer_data[i]).get();
+                    if (instance == null)
+                    {
+                        hole(i);
+                        continue;
+                    }
+                    buffer_data[i] = instance;
+                    slotIndex.put(instance, indexValue(info_index, i));
+                }
+
+                /* stamp slot, increment usecount and return index */
+                buffer_divField[i] = (byte)(typeIndex | USED);
+                trace(MemTrace.ALLOC, info_index, i, info.info_id);
+                buffer_generation[i] = nextGeneration();
+                info_bufferuse++;
+                info.demandAlloc();
+                stat_allocs.increment();
+                return i;
+            } /* FREE INSTANCE POP END */
+
+            /* otherwise, construct into a slot without instance */
+            if (!construct || !hasRoom()) return -1;
+
+            /* on unused, check class has a factory */
+            if (info.factory == null)
+            {
+                trace(MemTrace.INITFAIL, info_index, -1, info.info_id);
+                return -1;
+            }
+
+            /* afterwards, try to create instance */
+            Object instance;
+            try { instance = info.factory.get(); }
+            catch (Throwable exception) { instance = null; }
+            if (instance == null)
+            {
+                trace(MemTrace.INITFAIL, info_index, -1, info.info_id);
+                return -1;
+            }
+
+            /* claim slot only once the instance exists */
+            i = claim();
+            stat_constructs.increment();
+            trace(MemTrace.CONSTRUCT, info_index, i, info.info_id);
+
+            /* assign instance to buffer index  and change divField */
+            buffer_data[i] = instance;
+            buffer_divField[i] = (byte)(typeIndex | USED);
+
+            /* add instance to slot index */
+            slotIndex.put(instance, indexValue(info_index, i));
+
+            /* stamp slot, increment usecount and return index */
+            trace(MemTrace.ALLOC, info_index, i, info.info_id);
+            buffer_generation[i] = nextGeneration();
+            info_bufferuse++;
+            info.demandAlloc();
+            stat_allocs.increment();
+            return i;
+        } /* PAGE TAKE FUNCTION END */
+
+        /* ===== PAGE RELEASE FUNCTION ===== */
+        /* marks a slot unused and pushes it onto the free list */
+        /* of it's div. returns 1 on sucess, 0 if already free */
+        private int release(int index)
+        {
+            /* on already unused */
+            if ((buffer_divField[index] & USED) == 0) return 0;
+
+            int typeIndex = buffer_divField[index] & DIVMASK;
+            TypeInfo info = buffer_divMap[typeIndex];
+            buffer_generation[index] = 0;
+            info_bufferuse--;
+            info.demandFree();
+            stat_frees.increment();
+            trace(MemTrace.FREE, info_index, index, info.info_id);
+
+            /* tracked instances return to the slot, if the GC has */
+            /* not taken them yet */
+            if (buffer_data[index] instanceof LeakRef) untrack(this, index);
+
+            /* a draining page retires the slot, it's instance moves */
+            /* to a page still in use. the page goes once empty */
+            if (info_draining)
+            {
+                Object instance = buffer_data[index];
+                retire(index);
+                if (instance != null)
+                {
+                    slotIndex.remove(instance);
+                    if (!info.overQuota()) rehome(info, instance);
+                }
+                if (info_bufferuse == 0) dropPage(this);
+                return 1;
+            }
+
+            /* on instance taken, the slot is left empty */
+            if (buffer_data[index] == null)
+            {
+                hole(index);
+            }
+            /* over quota, let the GC have the instance */
+            else if (info.overQuota())
+            {
+                slotIndex.remove(buffer_data[index]);
+                hole(index);
+                stat_evictions.increment();
+                trace(MemTrace.EVICT, info_index, 1, info.info_id);
+            }
+            else
+            {
+                buffer_divField[index] = (byte)typeIndex;
+                buffer_freedAt[index] = clockTick();
+                buffer_next[index] = list_typeHead[typeIndex];
+                list_typeHead[typeIndex] = index;
+                info.info_freeCount++;
+
+                /* soft instances leave the index, so only the */
+                /* reference holds them */
+                if (info.info_soft)
+                {
+                    slotIndex.remove(buffer_data[index]);
+                    buffer_data[index] =
+                        new SoftReference<Object>(buffer_data[index]);
+                }
+
+                /* rejoin the partial directory of div's class */
+                if (!list_listed[typeIndex])
+                {
+                    list_listed[typeIndex] = true;
+                    info.partialPush(this);
+                }
+            }
+
+            if (info_bufferuse == 0) trimMark(this);
+            return 1;
+        } /* PAGE RELEASE FUNCTION END */
+
+        /* ===== PAGE UNLIST FUNCTION ===== */
+        /* clears listed flag of class after leaving it's directory */
+        public void unlist(TypeInfo info)
+        {
+            for (int i = 0; i < info_diversity; i++)
+            {
+                if (buffer_divMap[i] == info)
+                {
+                    list_listed[i] = false;
+                    return;
+                }
+            }
+        } /* PAGE UNLIST FUNCTION END */
+
+        /* ===== PAGE FORCE FREE FUNCTION ===== */
+        /* 1 on sucess, 0 on fail */
+        public int forceFree(int index)
+        {
+            /* on already unused */
+            if ((buffer_divField[index] & USED) == 0) return 0;
+
+            release(index);
+            return 1;
+        } /* PAGE FORCE FREE FUNCTION END */
+
+        /* ===== PAGE BUFFER DUMP FUNCTION ===== */
+        public void bufferDump()
+        {
+            System.out.printf("PAGE BUFFER CONTENTS:\n");
+            for (int i = 0; i < info_bumped; i++)
+            {
+                /* on empty, continue */
+                if ((buffer_divField[i] & (~USED)) == 1) continue;
+                if (buffer_data[i] == null) continue;
+                System.out.printf("\tIndex: [%03d]\n", i);
+                System.out.printf("\t\tObject Hash: %012d\n",
+                    buffer_data[i].hashCode());
+                System.out.printf("\t\tObject Type: %d\n",
+                    buffer_divField[i] & DIVMASK);
+            }
+        } /* PAGE BUFFER DUMP END */
+
+        /* ===== PAGE UNINDEX FUNCTION ===== */
+        /* removes all instances of page from the slot index */
+        public void unindex()
+        {
+            for (int i = 0; i < info_bumped; i++)
+            {
+                if (buffer_data[i] == null) continue;
+                if ((buffer_divField[i] & USED) == 0)
+                {
+                    buffer_divMap[buffer_divField[i]].info_freeCount--;
+                }
+                slotIndex.remove(buffer_data[i]);
+            }
+        } /* PAGE UNINDEX FUNCTION END */
+
+        /* ===== PAGE ADOPT FUNCTION ===== */
+        /* places a free instance of class, reserved or moved from */
+        /* another page, into a slot without instance. the page */
+        /* stops being a trim candidate. returns slot, -1 if full */
+        public int adopt(TypeInfo info, Object instance, int freedAt)
+        {
+            int typeIndex = divIndex(info);
+            if (typeIndex == -1) return -1;
+            int i = claim();
+            if (i == -1) return -1;
+
+            /* push onto div's free list */
+            buffer_data[i] = instance;
+            buffer_divField[i] = (byte)typeIndex;
+            buffer_freedAt[i] = freedAt;
+            buffer_next[i] = list_typeHead[typeIndex];
+            list_typeHead[typeIndex] = i;
+            info.info_freeCount++;
+            if (!info.info_soft)
+            {
+                slotIndex.put(instance, indexValue(info_index, i));
+            }
+
+            if (!list_listed[typeIndex])
+            {
+                list_listed[typeIndex] = true;
+                info.partialPush(this);
+            }
+            trimUnmark(this);
+            return i;
+        } /* PAGE ADOPT FUNCTION END */
+
+        /* ===== PAGE EVICT FUNCTION ===== */
+        /* lets go of free instances idle longer than their class */
+        /* allows, and of soft ones the GC took. returns count */
+        public int evict(int now)
+        {
+            int evicted = 0;
+            for (int d = 0; d < info_diversity; d++)
+            {
+                TypeInfo info = buffer_divMap[d];
+                if (info.info_idleTicks < 0 && !info.info_soft) continue;
+
+                int prev = LISTEND;
+                int i = list_typeHead[d];
+                while (i != LISTEND)
+                {
+                    int next = buffer_next[i];
+                    boolean idle = info.info_idleTicks >= 0 &&
+                        now - buffer_freedAt[i] > info.info_idleTicks;
+                    boolean taken = info.info_soft &&
+                        ((SoftReference)buffer_data[i]).get() == null;
+                    if (!idle && !taken)
+                    {
+                        prev = i;
+                        i = next;
+                        continue;
+                    }
+
+                    /* unlink and empty slot */
+                    if (prev == LISTEND) list_typeHead[d] = next;
+                    else buffer_next[prev] = next;
+                    slotIndex.remove(buffer_data[i]);
+                    info.info_freeCount--;
+                    hole(i);
+                    evicted++;
+                    i = next;
+                } /* FREE LIST LOOP END */
+            } /* DIV LOOP END */
+            return evicted;
+        } /* PAGE EVICT FUNCTION END */
+
+        /* ===== PAGE SHED FUNCTION ===== */
+        /* lets go of up to max free instances of class, newest */
+        /* first. returns count */
+        public int shed(TypeInfo info, int max)
+        {
+            int shed = 0;
+            for (int d = 0; d < info_diversity; d++)
+            {
+                if (buffer_divMap[d] != info) continue;
+                while (shed < max && list_typeHead[d] != LISTEND)
+                {
+                    int i = list_typeHead[d];
+                    list_typeHead[d] = buffer_next[i];
+                    slotIndex.remove(buffer_data[i]);
+                    info.info_freeCount--;
+                    hole(i);
+                    shed++;
+                }
+                break;
+            }
+            return shed;
+        } /* PAGE SHED FUNCTION END */
+    } /* PAGE CLASS BLOCK END */
+
+    /* ===== SLOTINDEX CLASS ===== */
+    /* open addressing table mapping each pooled instance, by */
+    /* reference identity, to it's page and slot. uses linear */
+    /* probing with backward shift deletion, so no tombstones */
+    private static final class SlotIndex
+    {
+        /* ===== SLOTINDEX INFO MEMBERS ===== */
+        public int info_size = 0;
+
+        /* ===== SLOTINDEX BUFFER MEMBERS ===== */
+        private Object[] buffer_keys; /* pooled instances */
+        private long[] buffer_values; /* page and slot of instance */
+
+        /* ===== SLOTINDEX CONSTRUCTOR ===== */
+        public SlotIndex(int capacity)
+        {
+            buffer_keys = new Object[capacity];
+            buffer_values = new long[capacity];
+        } /* SLOTINDEX CTOR END */
+
+        /* ===== SLOTINDEX HASH FUNCTION ===== */
+        private int hash(Object key)
+        {
+            int h = System.identityHashCode(key) * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (buffer_keys.length - 1);
+        } /* SLOTINDEX HASH FUNCTION END */
+
+        /* ===== SLOTINDEX GET FUNCTION ===== */
+        /* returns value of key, INDEXEMPTY if not present */
+        public long get(Object key)
+        {
+            int mask = buffer_keys.length - 1;
+            for (int i = hash(key); ; i = (i + 1) & mask)
+            {
+                Object k = buffer_keys[i];
+                if (k == key) return buffer_values[i];
+                if (k == null) return INDEXEMPTY;
+            }
+        } /* SLOTINDEX GET FUNCTION END */
+
+        /* ===== SLOTINDEX PUT FUNCTION ===== */
+        public void put(Object key, long value)
+        {
+            /* keep load factor at or below one half */
+            if ((info_size + 1) * 2 > buffer_keys.length)
+            {
+                resize(buffer_keys.length * 2);
+            }
+
+            int mask = buffer_keys.length - 1;
+            for (int i = hash(key); ; i = (i + 1) & mask)
+            {
+                Object k = buffer_keys[i];
+                if (k == key)
+                {
+                    buffer_values[i] = value;
+                    return;
+                }
+                if (k == null)
+                {
+                    buffer_keys[i] = key;
+                    buffer_values[i] = value;
+                    info_size++;
+                    return;
+                }
+            }
+        } /* SLOTINDEX PUT FUNCTION END */
+
+        /* ===== SLOTINDEX REMOVE FUNCTION ===== */
+        /* returns removed value, INDEXEMPTY if not present */
+        public long remove(Object key)
+        {
+            int mask = buffer_keys.length - 1;
+            int i = hash(key);
+            while (buffer_keys[i] != key)
+            {
+                if (buffer_keys[i] == null) return INDEXEMPTY;
+                i = (i + 1) & mask;
+            }
+            long value = buffer_values[i];
+            info_size--;
+
+            /* shift following entries of the probe run back */
+            int hole = i;
+            for (int j = (i + 1) & mask; buffer_keys[j] != null;
+                j = (j + 1) & mask)
+            {
+                int home = hash(buffer_keys[j]);
+                /* entry may move if home is not within (hole, j] */
+                if (((j - home) & mask) >= ((j - hole) & mask))
+                {
+                    buffer_keys[hole] = buffer_keys[j];
+                    buffer_values[hole] = buffer_values[j];
+                    hole = j;
+                }
+            }
+            buffer_keys[hole] = null;
+            return value;
+        } /* SLOTINDEX REMOVE FUNCTION END */
+
+        /* ===== SLOTINDEX RESIZE FUNCTION ===== */
+        private void resize(int capacity)
+        {
+            Object[] oldKeys = buffer_keys;
+            long[] oldValues = buffer_values;
+            buffer_keys = new Object[capacity];
+            buffer_values = new long[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++)
+            {
+                if (oldKeys[j] == null) continue;
+                int i = hash(oldKeys[j]);
+                while (buffer_keys[i] != null) i = (i + 1) & mask;
+                buffer_keys[i] = oldKeys[j];
+                buffer_values[i] = oldValues[j];
+            }
+        } /* SLOTINDEX RESIZE FUNCTION END */
+    } /* SLOTINDEX CLASS BLOCK END */
+
+    /* ===== TYPEINFO CLASS ===== */
+    /* per class record, created the first time a class is seen */
+    private final class TypeInfo
+    {
+        /* ===== TYPEINFO MEMBERS ===== */
+        public final Class type;
+        public final int info_id; /* dense, names class in traces */
+        public Supplier factory; /* null if class can't be built */
+
+        /* ===== TYPEINFO LIMIT MEMBERS ===== */
+        /* negative limits are unlimited */
+        public int info_freeCount = 0; /* pooled free instances */
+        public int info_maxFree = -1;
+        public long info_maxBytes = -1; /* of free instances */
+        public long info_bytes = 0; /* estimated instance size */
+        public int info_idleTicks = -1; /* clock ticks before eviction */
+        public boolean info_soft = false; /* free instances are soft */
+
+        /* ===== TYPEINFO DEMAND MEMBERS ===== */
+        /* counted since the last adapt pass, then kept per pass */
+        /* for the last DEMANDWINDOW passes */
+        public int info_live = 0; /* instances in use */
+        public int info_allocs = 0;
+        public int info_frees = 0;
+        public int info_peak = 0; /* most instances in use at once */
+        public final int[] buffer_allocs = new int[DEMANDWINDOW];
+        public final int[] buffer_peaks = new int[DEMANDWINDOW];
+        public int info_window = 0; /* bucket of next pass */
+
+        /* ===== TYPEINFO DIRECTORY MEMBERS ===== */
+        public Page page_current = null; /* last page alloced from */
+        private Page[] buffer_partial; /* pages with free instances */
+        public int info_partialCount = 0;
+
+        /* ===== TYPEINFO CONSTRUCTOR ===== */
+        public TypeInfo(Class type, Supplier factory)
+        {
+            this(type, factory, type.getName());
+        }
+
+        public TypeInfo(Class type, Supplier factory, String name)
+        {
+            this.type = type;
+            this.factory = factory;
+            info_id = info_typeCount.getAndIncrement();
+            MemTrace.defineClass(info_id, name);
+            buffer_partial = new Page[DIRECTORYSIZE];
+        } /* TYPEINFO CTOR END */
+
+        /* ===== TYPEINFO OVER QUOTA FUNCTION ===== */
+        /* true if one more free instance would break a limit */
+        public boolean overQuota()
+        {
+            if (info_maxFree >= 0 && info_freeCount >= info_maxFree)
+                return true;
+            return info_maxBytes >= 0 &&
+                (info_freeCount + 1) * info_bytes > info_maxBytes;
+        } /* TYPEINFO OVER QUOTA FUNCTION END */
+
+        /* ===== TYPEINFO DEMAND FUNCTIONS ===== */
+        public void demandAlloc()
+        {
+            info_allocs++;
+            if (++info_live > info_peak) info_peak = info_live;
+        }
+
+        public void demandFree()
+        {
+            info_frees++;
+            info_live--;
+        } /* TYPEINFO DEMAND FUNCTIONS END */
+
+        /* ===== TYPEINFO PARTIAL PUSH FUNCTION ===== */
+        public void partialPush(Page page)
+        {
+            if (info_partialCount == buffer_partial.length)
+            {
+                buffer_partial = Arrays.copyOf(buffer_partial,
+                    info_partialCount * 2);
+            }
+            buffer_partial[info_partialCount++] = page;
+        } /* TYPEINFO PARTIAL PUSH FUNCTION END */
+
+        /* ===== TYPEINFO PARTIAL POP FUNCTION ===== */
+        /* returns null once directory is empty */
+        public Page partialPop()
+        {
+            if (info_partialCount == 0) return null;
+            Page page = buffer_partial[--info_partialCount];
+            buffer_partial[info_partialCount] = null;
+            page.unlist(this);
+            return page;
+        } /* TYPEINFO PARTIAL POP FUNCTION END */
+    } /* TYPEINFO CLASS BLOCK END */
+
+    /* ===== INFO MEMBERS ===== */
+    public final String info_name; /* null if unnamed */
+    public int info_pageCount = 0;
+
+    /* ===== BUFFER MEMBERS ===== */
+    private Page[] buffer_pages = new Page[PAGECOUNT];
+    private int info_pageHint = 0; /* no holes below this */
+    private int info_pageTop = 0; /* no pages from this on */
+
+    /* ===== GEOMETRY MEMBERS ===== */
+    private int info_pageSize = PAGESIZE;
+    private int info_divSize = DIVERSITY;
+    private int info_slotBits = slotBits(PAGESIZE);
+
+    /* ===== SLOT BITS FUNCTION ===== */
+    /* returns bits needed to address every slot of a page */
+    private static int slotBits(int pageSize)
+    {
+        return 32 - Integer.numberOfLeadingZeros(pageSize - 1);
+    } /* SLOT BITS FUNCTION END */
+
+    /* ===== CONFIGURE FUNCTION ===== */
+    /* sets slots per page and classes per page. only allowed */
+    /* before the first page is created. returns 1 on sucess, */
+    /* 0 on failure */
+    public int configure(int pageSize, int diversity)
+    {
+        if (pageSize < 1 || pageSize > MAXPAGESIZE ||
+            diversity < 1 || diversity > MAXDIVERSITY)
+        {
+            System.err.printf("COULD NOT CONFIGURE: Bad geometry\n");
+            return 0;
+        }
+
+        lock.lock();
+        try
+        {
+            if (info_pageCount != 0)
+            {
+                System.err.printf("COULD NOT CONFIGURE: Pages exist\n");
+                return 0;
+            }
+            info_pageSize = pageSize;
+            info_divSize = diversity;
+            info_slotBits = slotBits(pageSize);
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* CONFIGURE FUNCTION END */
+
+    /* ===== CONSTRUCTORS ===== */
+    /* the name tells this pool's trimmer thread and mbean apart */
+    /* from other pools, and may be null */
+    public MemPool(String name)
+    {
+        this.info_name = name;
+    }
+
+    public MemPool()
+    {
+        this(null);
+    }
+
+    /* a pool with it's own geometry. on bad geometry the pool */
+    /* keeps the default one, see configure */
+    public MemPool(String name, int pageSize, int diversity)
+    {
+        this(name);
+        configure(pageSize, diversity);
+    } /* CONSTRUCTORS END */
+
+    /* ===== DIRECTORY MEMBERS ===== */
+    /* pages that still have never used slots, usable by any class */
+    private Page[] buffer_openPages = new Page[DIRECTORYSIZE];
+    private int info_openCount = 0;
+
+    /* empty pages the trimmer may drop, may hold reused pages */
+    private Page[] buffer_candidates = new Page[DIRECTORYSIZE];
+    private int info_candidateCount = 0;
+
+    /* ===== GENERATION MEMBERS ===== */
+    private int info_generation = 0;
+
+    /* ===== NEXT GENERATION FUNCTION ===== */
+    /* returns a new alloc stamp, never 0 */
+    private int nextGeneration()
+    {
+        info_generation++;
+        if (info_generation == 0) info_generation++;
+        return info_generation;
+    } /* NEXT GENERATION FUNCTION END */
+
+    /* ===== LOCK MEMBER ===== */
+    /* guards the pages, the slot index and all info members */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* ===== MAGAZINE CLASS ===== */
+    /* per thread stacks of free instances, one stack per class. */
+    /* instances held here are still marked used and cached by */
+    /* their page, so popping and pushing them never locks. what */
+    /* a magazine hands out is recorded in the shared lend table, */
+    /* so any thread's magazine may take it back, once. threads */
+    /* that exit without flushing have their magazine reclaimed */
+    /* once the GC takes the thread */
+    private final class Magazine
+    {
+        /* ===== MAGAZINE INFO MEMBERS ===== */
+        public int info_typeCount = 0;
+        private final MagazineRef ref; /* registration of owner */
+
+        /* ===== MAGAZINE BUFFER MEMBERS ===== */
+        private Class[] buffer_types; /* class of each stack */
+        private Object[][] buffer_stacks; /* free instance stacks */
+        private int[] buffer_counts; /* fill of each stack */
+
+        /* ===== MAGAZINE CONSTRUCTOR ===== */
+        public Magazine()
+        {
+            buffer_types = new Class[MAGAZINETYPES];
+            buffer_stacks = new Object[MAGAZINETYPES][];
+            buffer_counts = new int[MAGAZINETYPES];
+
+            lock.lock();
+            try
+            {
+                collectMagazinesLocked();
+                ref = new MagazineRef(Thread.currentThread(), this,
+                    magazineQueue);
+                buffer_magazines.add(ref);
+            }
+            finally { lock.unlock(); }
+        } /* MAGAZINE CTOR END */
+
+        /* ===== MAGAZINE STACK FUNCTION ===== */
+        /* returns stack index of class, creating one if needed */
+        private int stack(Class type)
+        {
+            for (int i = 0; i < info_typeCount; i++)
+            {
+                if (buffer_types[i] == type) return i;
+            }
+
+            /* on full, grow type buffers */
+            if (info_typeCount == buffer_types.length)
+            {
+                int size = buffer_types.length * 2;
+                buffer_types = Arrays.copyOf(buffer_types, size);
+                buffer_stacks = Arrays.copyOf(buffer_stacks, size);
+                buffer_counts = Arrays.copyOf(buffer_counts, size);
+            }
+
+            buffer_types[info_typeCount] = type;
+            buffer_stacks[info_typeCount] = new Object[MAGAZINESIZE];
+            return info_typeCount++;
+        } /* MAGAZINE STACK FUNCTION END */
+
+        /* ===== MAGAZINE ALLOCATE FUNCTION ===== */
+        /* returns null on failure */
+        public Object alloc(Class type)
+        {
+            int t = stack(type);
+
+            /* on empty, refill half a magazine from the pages */
+            if (buffer_counts[t] == 0)
+            {
+                lock.lock();
+                try
+                {
+                    collectMagazinesLocked();
+                    Object[] stack = buffer_stacks[t];
+                    while (buffer_counts[t] < MAGAZINESIZE / 2)
+                    {
+                        Object obj = allocCached(type);
+                        if (obj == null) break;
+                        stack[buffer_counts[t]++] = obj;
+                    }
+                    trace(MemTrace.MAGREFILL, -1, buffer_counts[t],
+                        typeInfo(type).info_id);
+                }
+                finally { lock.unlock(); }
+                if (buffer_counts[t] == 0) return null;
+            } /* REFILL END */
+
+            stat_magazineAllocs.increment();
+            Object obj = buffer_stacks[t][--buffer_counts[t]];
+            buffer_stacks[t][buffer_counts[t]] = null;
+            lend(obj);
+            return obj;
+        } /* MAGAZINE ALLOCATE FUNCTION END */
+
+        /* ===== MAGAZINE FREE FUNCTION ===== */
+        /* returns 1 on sucess, 0 if object was not lent by a */
+        /* magazine or depot */
+        public int free(Object toFree)
+        {
+            if (!unlend(toFree)) return 0;
+            int t = stack(toFree.getClass());
+
+            /* on full, return half of the magazine to the pages */
+            if (buffer_counts[t] == MAGAZINESIZE)
+            {
+                flush(t, MAGAZINESIZE / 2);
+            }
+
+            buffer_stacks[t][buffer_counts[t]++] = toFree;
+            stat_magazineFrees.increment();
+            return 1;
+        } /* MAGAZINE FREE FUNCTION END */
+
+        /* ===== MAGAZINE FLUSH FUNCTION ===== */
+        /* frees the top count instances of a stack to their pages */
+        public void flush(int t, int count)
+        {
+            lock.lock();
+            try
+            {
+                trace(MemTrace.MAGFLUSH, -1, Math.min(count, buffer_counts[t]),
+                    typeInfo(buffer_types[t]).info_id);
+                Object[] stack = buffer_stacks[t];
+                for (int i = 0; i < count && buffer_counts[t] > 0; i++)
+                {
+                    Object obj = stack[--buffer_counts[t]];
+                    stack[buffer_counts[t]] = null;
+                    releaseCached(obj);
+                }
+            }
+            finally { lock.unlock(); }
+        } /* MAGAZINE FLUSH FUNCTION END */
+    } /* MAGAZINE CLASS BLOCK END */
+
+    /* ===== MAGAZINE REF CLASS ===== */
+    /* registers a magazine under it's owning thread. once the GC */
+    /* takes the thread the reference is enqueued, while the */
+    /* magazine itself is still held here */
+    private static final class MagazineRef extends WeakReference<Thread>
+    {
+        public final Magazine magazine;
+
+        public MagazineRef(Thread owner, Magazine magazine,
+            ReferenceQueue<Thread> queue)
+        {
+            super(owner, queue);
+            this.magazine = magazine;
+        }
+    } /* MAGAZINE REF CLASS BLOCK END */
+
+    /* ===== MAGAZINE MEMBERS ===== */
+    private ThreadLocal<Magazine> magazines =
+        ThreadLocal.withInitial(Magazine::new);
+    /* magazines not yet flushed, keeps their references alive */
+    private HashSet<MagazineRef> buffer_magazines = new HashSet<>();
+    private ReferenceQueue<Thread> magazineQueue = new ReferenceQueue<>();
+
+    /* ===== COLLECT MAGAZINES FUNCTION ===== */
+    /* caller must hold lock. returns instances held by magazines */
+    /* of exited threads to the pages. a thread per task never */
+    /* calls flushMagazine(), so without this every finished task */
+    /* would strand up to a magazine of instances. runs on each */
+    /* magazine creation and refill */
+    private void collectMagazinesLocked()
+    {
+        MagazineRef ref;
+        while ((ref = (MagazineRef)magazineQueue.poll()) != null)
+        {
+            /* magazine was flushed by it's owner */
+            if (!buffer_magazines.remove(ref)) continue;
+            Magazine magazine = ref.magazine;
+            for (int i = 0; i < magazine.info_typeCount; i++)
+            {
+                magazine.flush(i, MAGAZINESIZE);
+            }
+        }
+    } /* COLLECT MAGAZINES FUNCTION END */
+
+    /* ===== DEPOT CLASS ===== */
+    /* a fixed ring of free instances of one class shared by all */
+    /* threads. slots are claimed and filled with CAS, so taking */
+    /* and returning instances never locks. as with magazines, */
+    /* instances held here are still marked used and cached by */
+    /* their page */
+    private final class Depot
+    {
+        /* ===== DEPOT INFO MEMBERS ===== */
+        public final Class type;
+        public boolean info_listed = false; /* in buffer_depots */
+
+        /* ===== DEPOT BUFFER MEMBERS ===== */
+        private final Object[] buffer_slots = new Object[DEPOTSIZE];
+
+        /* ===== DEPOT CONSTRUCTOR ===== */
+        public Depot(Class type)
+        {
+            this.type = type;
+        } /* DEPOT CTOR END */
+
+        /* ===== DEPOT TAKE FUNCTION ===== */
+        /* claims any free instance, scanning from start. returns */
+        /* null if the depot is empty */
+        public Object take(int start)
+        {
+            for (int i = 0; i < DEPOTSIZE; i++)
+            {
+                int at = (start + i) & (DEPOTSIZE - 1);
+                Object obj = SLOTS.getAcquire(buffer_slots, at);
+                if (obj != null &&
+                    SLOTS.compareAndSet(buffer_slots, at, obj, null))
+                {
+                    return obj;
+                }
+            }
+            return null;
+        } /* DEPOT TAKE FUNCTION END */
+
+        /* ===== DEPOT PUT FUNCTION ===== */
+        /* fills any empty slot, scanning from start. returns 1 on */
+        /* sucess, 0 if the depot is full */
+        public int put(Object obj, int start)
+        {
+            for (int i = 0; i < DEPOTSIZE; i++)
+            {
+                int at = (start + i) & (DEPOTSIZE - 1);
+                if (SLOTS.getAcquire(buffer_slots, at) == null &&
+                    SLOTS.compareAndSet(buffer_slots, at, null, obj))
+                {
+                    return 1;
+                }
+            }
+            return 0;
+        } /* DEPOT PUT FUNCTION END */
+
+        /* ===== DEPOT REFILL FUNCTION ===== */
+        /* takes a run of instances from the pages, keeps one for */
+        /* the caller and shares the rest. returns null on failure */
+        public Object refill(int start)
+        {
+            lock.lock();
+            try
+            {
+                if (!info_listed)
+                {
+                    buffer_depots.add(this);
+                    info_listed = true;
+                }
+                Object first = allocCached(type);
+                if (first == null) return null;
+
+                int count = 1;
+                while (count < DEPOTREFILL)
+                {
+                    Object obj = allocCached(type);
+                    if (obj == null) break;
+                    count++;
+
+                    /* others may have filled the depot meanwhile */
+                    if (put(obj, start) == 0)
+                    {
+                        releaseCached(obj);
+                        break;
+                    }
+                }
+                trace(MemTrace.MAGREFILL, -1, count,
+                    typeInfo(type).info_id);
+                return first;
+            }
+            finally { lock.unlock(); }
+        } /* DEPOT REFILL FUNCTION END */
+
+        /* ===== DEPOT DRAIN FUNCTION ===== */
+        /* caller must hold lock. frees up to count held instances */
+        /* to their pages. returns count drained */
+        public int drain(int count)
+        {
+            int drained = 0;
+            for (int i = 0; i < DEPOTSIZE && drained < count; i++)
+            {
+                Object obj = SLOTS.getAndSet(buffer_slots, i, null);
+                if (obj == null) continue;
+                releaseCached(obj);
+                drained++;
+            }
+            trace(MemTrace.MAGFLUSH, -1, drained, typeInfo(type).info_id);
+            return drained;
+        } /* DEPOT DRAIN FUNCTION END */
+    } /* DEPOT CLASS BLOCK END */
+
+    /* ===== DEPOT MEMBERS ===== */
+    private static final VarHandle SLOTS =
+        MethodHandles.arrayElementVarHandle(Object[].class);
+    private final ConcurrentHashMap<Class, Depot> depots =
+        new ConcurrentHashMap<>();
+    private final ArrayList<Depot> buffer_depots = new ArrayList<>();
+
+    /* instances handed out by magazines and depots, by identity. */
+    /* a free that finds it's instance here knows, without the */
+    /* slot index, that the instance is pooled and not yet freed. */
+    /* built by the first cache refill, so pools that never use */
+    /* magazines or depots skip it */
+    private volatile Object[] buffer_lent;
+
+    /* lent instances that found their neighbourhood of the lend */
+    /* table full. guarded by lock */
+    private SlotIndex lentOverflow = new SlotIndex(LENTOVERFLOW);
+
+    /* ===== DEPOT START FUNCTION ===== */
+    /* spreads threads over the depot so they rarely CAS the same */
+    /* slots */
+    private static int depotStart()
+    {
+        long id = Thread.currentThread().getId();
+        return (int)((id * 0x9E3779B97F4A7C15L) >>> 56) & (DEPOTSIZE - 1);
+    } /* DEPOT START FUNCTION END */
+
+    /* ===== VIRTUAL THREAD FUNCTION ===== */
+    /* Thread.isVirtual() where the JDK has it, found reflectively */
+    /* so the pool still builds on 17. null before 21 */
+    private static final MethodHandle ISVIRTUAL = findIsVirtual();
+
+    private static MethodHandle findIsVirtual()
+    {
+        try
+        {
+            return MethodHandles.publicLookup().findVirtual(Thread.class,
+                "isVirtual", MethodType.methodType(boolean.class));
+        }
+        catch (ReflectiveOperationException exception) { return null; }
+    }
+
+    /* true when the calling thread is virtual. a virtual thread */
+    /* usually runs one task and exits, so in concurrent mode it */
+    /* trades through the depots rather than build a magazine */
+    private static boolean virtualThread()
+    {
+        if (ISVIRTUAL == null) return false;
+        try { return (boolean)ISVIRTUAL.invokeExact(Thread.currentThread()); }
+        catch (Throwable exception) { return false; }
+    } /* VIRTUAL THREAD FUNCTION END */
+
+    /* ===== LEND FUNCTIONS ===== */
+    /* records an instance as handed out. when it's neighbourhood */
+    /* of the table is full it is recorded under the lock instead, */
+    /* and it's free goes through the locked path */
+    private void lend(Object obj)
+    {
+        Object[] lent = buffer_lent;
+        int home = (System.identityHashCode(obj) * 0x9E3779B9)
+            >>> (32 - LENTBITS);
+        for (int i = 0; lent != null && i < LENTPROBE; i++)
+        {
+            int at = (home + i) & ((1 << LENTBITS) - 1);
+            if (SLOTS.getAcquire(lent, at) == null &&
+                SLOTS.compareAndSet(lent, at, null, obj))
+            {
+                return;
+            }
+        }
+
+        lock.lock();
+        try { lentOverflow.put(obj, 0); }
+        finally { lock.unlock(); }
+    }
+
+    /* returns true if the instance was lent, and clears it so a */
+    /* second free of it can not also succeed. misses instances */
+    /* recorded under the lock, see unlendLocked */
+    private boolean unlend(Object obj)
+    {
+        Object[] lent = buffer_lent;
+        if (lent == null || obj == null) return false;
+
+        int home = (System.identityHashCode(obj) * 0x9E3779B9)
+            >>> (32 - LENTBITS);
+        for (int i = 0; i < LENTPROBE; i++)
+        {
+            int at = (home + i) & ((1 << LENTBITS) - 1);
+            if (SLOTS.getAcquire(lent, at) == obj &&
+                SLOTS.compareAndSet(lent, at, obj, null))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* caller must hold lock. unlend that also finds instances */
+    /* recorded under the lock */
+    private boolean unlendLocked(Object obj)
+    {
+        return unlend(obj) || lentOverflow.remove(obj) != INDEXEMPTY;
+    } /* LEND FUNCTIONS END */
+
+    /* ===== CACHE FUNCTIONS ===== */
+    /* caller must hold lock. allocs an instance for a magazine or */
+    /* depot, marking it's slot cached. returns null on failure */
+    private Object allocCached(Class type)
+    {
+        if (buffer_lent == null) buffer_lent = new Object[1 << LENTBITS];
+
+        long handle = allocSlot(type);
+        if (handle == -1) return null;
+        Page page = buffer_pages[handlePage(handle)];
+        int slot = handleSlot(handle);
+        page.buffer_divField[slot] |= CACHED;
+        return page.buffer_data[slot];
+    }
+
+    /* caller must hold lock. returns an instance held by a */
+    /* magazine or depot to it's page */
+    private void releaseCached(Object obj)
+    {
+        long value = slotIndex.get(obj);
+        buffer_pages[indexPage(value)].forceFree(indexSlot(value));
+    } /* CACHE FUNCTIONS END */
+
+    /* ===== DEPOT ALLOCATE FUNCTION ===== */
+    /* returns null on failure */
+    private Object depotAlloc(Class type)
+    {
+        Depot depot = depots.get(type);
+        if (depot == null) depot = depots.computeIfAbsent(type, Depot::new);
+        int start = depotStart();
+        Object obj = depot.take(start);
+        if (obj != null)
+        {
+            stat_magazineAllocs.increment();
+        }
+        else
+        {
+            obj = depot.refill(start);
+            if (obj == null) return null;
+        }
+        lend(obj);
+        return obj;
+    } /* DEPOT ALLOCATE FUNCTION END */
+
+    /* ===== DEPOT FREE FUNCTION ===== */
+    /* returns 1 on sucess, 0 if the instance was not lent by a */
+    /* magazine or depot */
+    private int depotFree(Object toFree)
+    {
+        if (!unlend(toFree)) return 0;
+
+        Depot depot = depots.get(toFree.getClass());
+        if (depot != null && depot.put(toFree, depotStart()) == 1)
+        {
+            stat_magazineFrees.increment();
+            return 1;
+        }
+
+        /* on full, return half of the depot to the pages. lent */
+        /* by a magazine, no depot takes the class yet */
+        lock.lock();
+        try
+        {
+            if (depot != null) depot.drain(DEPOTSIZE / 2);
+            releaseCached(toFree);
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* DEPOT FREE FUNCTION END */
+
+    /* ===== INDEX MEMBERS ===== */
+    private SlotIndex slotIndex = new SlotIndex(INDEXSIZE);
+
+    /* ===== INDEX VALUE FUNCTIONS ===== */
+    /* index values hold the page in the high and slot in the */
+    /* low 32 bits */
+    private static long indexValue(int page, int slot)
+    {
+        return ((long)page << 32) | slot;
+    }
+
+    private static int indexPage(long value)
+    {
+        return (int)(value >>> 32);
+    }
+
+    private static int indexSlot(long value)
+    {
+        return (int)value;
+    } /* INDEX VALUE FUNCTIONS END */
+
+    /* ===== INDEX OF FUNCTION ===== */
+    /* caller must hold lock. returns index value of a pooled */
+    /* instance, tracked ones too, INDEXEMPTY if it is not pooled */
+    private long indexOf(Object obj)
+    {
+        if (obj == null) return INDEXEMPTY;
+        long value = slotIndex.get(obj);
+        if (value != INDEXEMPTY || info_tracked == 0) return value;
+
+        LeakRef ref = leakFind(obj);
+        if (ref == null) return INDEXEMPTY;
+        return indexValue(ref.page.info_index, ref.slot);
+    } /* INDEX OF FUNCTION END */
+
+    /* ===== LEAKREF CLASS ===== */
+    /* stands in for a tracked instance in it's slot while in use. */
+    /* nothing else in the pool refers to the instance, so once the */
+    /* caller drops it the GC clears and enqueues the reference */
+    private static final class LeakRef extends WeakReference<Object>
+    {
+        public final Page page;
+        public final int slot;
+        public final int info_hash; /* identity hash of instance */
+        public final Class type;
+        public final int info_id; /* trace id of slot's class */
+        public final Throwable site; /* alloc stack, null if unsampled */
+        public LeakRef next = null; /* next in leak table bucket */
+        public boolean info_live = true; /* in leak table */
+
+        public LeakRef(Object instance, Page page, int slot, int id,
+            Throwable site, ReferenceQueue<Object> queue)
+        {
+            super(instance, queue);
+            this.page = page;
+            this.slot = slot;
+            this.info_hash = System.identityHashCode(instance);
+            this.type = instance.getClass();
+            this.info_id = id;
+            this.site = site;
+        }
+    } /* LEAKREF CLASS BLOCK END */
+
+    /* ===== LEAK MEMBERS ===== */
+    /* tracked instances by identity hash, chained through their */
+    /* references. built by the first tracked alloc */
+    private LeakRef[] buffer_leaks;
+    private int info_tracked = 0; /* instances in leak table */
+    private int info_leakTick = 0; /* tracked allocs since last sample */
+    private ReferenceQueue<Object> leakQueue = new ReferenceQueue<>();
+
+    /* ===== LEASE FUNCTIONS ===== */
+    /* caller must hold lock. returns the instance of a slot just */
+    /* allocated for a caller. in leak tracking mode, the slot and */
+    /* slot index let go of the instance for a weak reference */
+    private Object lease(long handle)
+    {
+        return lease(buffer_pages[handlePage(handle)], handleSlot(handle));
+    }
+
+    private Object lease(Page page, int slot)
+    {
+        Object instance = page.buffer_data[slot];
+        if (!leak_tracking) return instance;
+
+        /* leaks are looked for on every tracked alloc */
+        collectLocked();
+
+        Throwable site = null;
+        if (leak_sampling > 0 && ++info_leakTick >= leak_sampling)
+        {
+            info_leakTick = 0;
+            site = new Throwable();
+        }
+
+        int id = page.buffer_divMap[page.buffer_divField[slot] & DIVMASK].info_id;
+        LeakRef ref = new LeakRef(instance, page, slot, id, site, leakQueue);
+        leakInsert(ref);
+        slotIndex.remove(instance);
+        page.buffer_data[slot] = ref;
+        return instance;
+    } /* LEASE FUNCTIONS END */
+
+    /* ===== LEAK TABLE FUNCTIONS ===== */
+    private int leakBucket(int hash)
+    {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (buffer_leaks.length - 1);
+    }
+
+    private void leakInsert(LeakRef ref)
+    {
+        if (buffer_leaks == null) buffer_leaks = new LeakRef[LEAKTABLE];
+
+        /* keep chains at about one reference long */
+        if (info_tracked == buffer_leaks.length)
+        {
+            LeakRef[] old = buffer_leaks;
+            buffer_leaks = new LeakRef[old.length * 2];
+            for (LeakRef head : old)
+            {
+                while (head != null)
+                {
+                    LeakRef next = head.next;
+                    int b = leakBucket(head.info_hash);
+                    head.next = buffer_leaks[b];
+                    buffer_leaks[b] = head;
+                    head = next;
+                }
+            }
+        }
+
+        int b = leakBucket(ref.info_hash);
+        ref.next = buffer_leaks[b];
+        buffer_leaks[b] = ref;
+        info_tracked++;
+    }
+
+    /* returns reference of a tracked instance, null if untracked */
+    private LeakRef leakFind(Object obj)
+    {
+        LeakRef ref = buffer_leaks[leakBucket(System.identityHashCode(obj))];
+        while (ref != null && ref.get() != obj) ref = ref.next;
+        return ref;
+    }
+
+    private void leakRemove(LeakRef ref)
+    {
+        if (!ref.info_live) return;
+        ref.info_live = false;
+        info_tracked--;
+
+        int b = leakBucket(ref.info_hash);
+        if (buffer_leaks[b] == ref)
+        {
+            buffer_leaks[b] = ref.next;
+            return;
+        }
+        LeakRef prev = buffer_leaks[b];
+        while (prev.next != ref) prev = prev.next;
+        prev.next = ref.next;
+    } /* LEAK TABLE FUNCTIONS END */
+
+    /* ===== UNTRACK FUNCTION ===== */
+    /* caller must hold lock. puts a tracked instance back into */
+    /* it's slot and the slot index. the slot is left null if the */
+    /* GC took the instance already */
+    private void untrack(Page page, int slot)
+    {
+        LeakRef ref = (LeakRef)page.buffer_data[slot];
+        Object instance = ref.get();
+        leakRemove(ref);
+        ref.clear();
+
+        page.buffer_data[slot] = instance;
+        if (instance != null)
+        {
+            slotIndex.put(instance, indexValue(page.info_index, slot));
+        }
+    } /* UNTRACK FUNCTION END */
+
+    /* ===== COLLECT LEAKS FUNCTION ===== */
+    /* counts every tracked object the GC took that was never */
+    /* freed, printing the alloc stack of sampled ones. in leak */
+    /* reclaim mode the slot goes back to it's page. runs on each */
+    /* tracked alloc and trimmer pass. returns count of leaks found */
+    public int collectLeaks()
+    {
+        lock.lock();
+        try { return collectLocked(); }
+        finally { lock.unlock(); }
+    }
+
+    private int collectLocked()
+    {
+        int leaks = 0;
+        LeakRef ref;
+        while ((ref = (LeakRef)leakQueue.poll()) != null)
+        {
+            /* slot was freed by handle after the GC took it */
+            if (!ref.info_live) continue;
+            leakRemove(ref);
+            leaks++;
+            stat_leaks.increment();
+            trace(MemTrace.LEAK, ref.page.info_index, ref.slot, ref.info_id);
+
+            /* only sampled leaks are printed, the rest are counted */
+            if (ref.site != null)
+            {
+                System.err.printf("LEAKED %s, ALLOCATED AT:\n",
+                    ref.type.getName());
+                for (StackTraceElement frame : ref.site.getStackTrace())
+                {
+                    /* skip the pool's own frames */
+                    String name = frame.getClassName();
+                    if (name.equals("Mem") || name.startsWith("MemPool"))
+                        continue;
+                    System.err.printf("\tat %s\n", frame);
+                }
+            }
+
+            /* release finds the slot's reference cleared, and */
+            /* leaves the slot empty */
+            if (leak_reclaim)
+            {
+                ref.page.release(ref.slot);
+                stat_leaksReclaimed.increment();
+            }
+        } /* LEAK QUEUE LOOP END */
+        return leaks;
+    } /* COLLECT LEAKS FUNCTION END */
+
+    /* ===== TYPEINFO MEMBERS ===== */
+    private final IdentityHashMap<Class, TypeInfo> buffer_types =
+        new IdentityHashMap<>();
+    private static final AtomicInteger info_typeCount =
+        new AtomicInteger(); /* shared, so traces tell pools apart */
+
+    /* ===== TYPEINFO FUNCTION ===== */
+    /* caller must hold lock. returns record of class, building */
+    /* it's factory on first sight */
+    private TypeInfo typeInfo(Class type)
+    {
+        TypeInfo info = buffer_types.get(type);
+        if (info == null)
+        {
+            info = new TypeInfo(type, makeFactory(type));
+            buffer_types.put(type, info);
+        }
+        return info;
+    } /* TYPEINFO FUNCTION END */
+
+    /* ===== ARRAY TYPEINFO MEMBERS ===== */
+    /* size class records of each component type, by bin. bin b */
+    /* pools arrays of exactly 1 << b elements */
+    private final IdentityHashMap<Class, TypeInfo[]>
+        buffer_arrayTypes = new IdentityHashMap<>();
+
+    /* ===== ARRAY BIN FUNCTION ===== */
+    /* returns bin of the smallest size class holding length */
+    private static int arrayBin(int length)
+    {
+        return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    } /* ARRAY BIN FUNCTION END */
+
+    /* ===== ARRAY TYPEINFO FUNCTION ===== */
+    /* caller must hold lock. returns record of a size class, */
+    /* building it on first sight */
+    private TypeInfo arrayInfo(Class component, int bin)
+    {
+        TypeInfo[] bins = buffer_arrayTypes.get(component);
+        if (bins == null)
+        {
+            bins = new TypeInfo[MAXARRAYBIN + 1];
+            buffer_arrayTypes.put(component, bins);
+        }
+        if (bins[bin] == null)
+        {
+            final int length = 1 << bin;
+            Supplier factory = () ->
+                java.lang.reflect.Array.newInstance(component, length);
+            bins[bin] = new TypeInfo(component.arrayType(), factory,
+                component.getName() + "[" + length + "]");
+        }
+        return bins[bin];
+    } /* ARRAY TYPEINFO FUNCTION END */
+
+    /* ===== MAKE FACTORY FUNCTION ===== */
+    /* spins a Supplier that calls the no-arg ctor directly, so */
+    /* constructing costs the same as a plain new. returns null */
+    /* if the class has no accessible no-arg ctor */
+    private static Supplier makeFactory(Class type)
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle ctor;
+        try
+        {
+            ctor = lookup.findConstructor(type,
+                MethodType.methodType(void.class));
+        }
+        catch (Exception exception)
+        {
+            return null;
+        }
+
+        /* try generating a lambda class, else wrap the handle */
+        try
+        {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class), ctor,
+                MethodType.methodType(type));
+            return (Supplier)site.getTarget().invoke();
+        }
+        catch (Throwable exception)
+        {
+            final MethodHandle handle = ctor;
+            return () ->
+            {
+                try { return handle.invoke(); }
+                catch (Throwable t) { return null; }
+            };
+        }
+    } /* MAKE FACTORY FUNCTION END */
+
+    /* ===== REGISTER FUNCTION ===== */
+    /* sets the factory used to build instances of a class, so */
+    /* classes without a public no-arg ctor can be pooled. */
+    /* returns 1 on sucess, 0 on failure */
+    public <T> int register(Class<T> type, Supplier<T> factory)
+    {
+        if (type == null || factory == null)
+        {
+            System.err.printf("COULD NOT REGISTER CLASS\n");
+            return 0;
+        }
+
+        lock.lock();
+        try
+        {
+            TypeInfo info = buffer_types.get(type);
+            if (info == null)
+            {
+                buffer_types.put(type, new TypeInfo(type, factory));
+            }
+            else
+            {
+                info.factory = factory;
+            }
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* REGISTER FUNCTION END */
+
+    /* ===== ALLOCATE SLOT FUNCTION ===== */
+    /* returns handle of allocated slot, -1 on failure */
+    private long allocSlot(Class type)
+    {
+        return allocSlot(typeInfo(type));
+    }
+
+    private long allocSlot(TypeInfo info)
+    {
+        /* a class without factory never had instances, fail fast */
+        if (info.factory == null)
+        {
+            System.err.printf("COULD NOT BUILD CLASS\n");
+            return -1;
+        }
+
+        /* first, try the page last alloced from. while the class */
+        /* has free instances elsewhere, reuse them before building */
+        Page page = info.page_current;
+        if (page != null && !page.info_dead)
+        {
+            int slot = page.alloc(info, info.info_freeCount == 0);
+            if (slot != -1)
+            {
+                stat_currentHits.increment();
+                return slotHandle(page, slot);
+            }
+        }
+        stat_slowAllocs.increment();
+
+        /* then, the page the placement policy picks to reuse a */
+        /* free instance from */
+        if (placement_policy != null && info.info_freeCount > 0)
+        {
+            long handle = placeSlot(info, true);
+            if (handle != -1) return handle;
+        }
+
+        /* then, pages with free instances of class */
+        int scan = 0;
+        while ((page = info.partialPop()) != null)
+        {
+            scan++;
+            if (page.info_dead) continue;
+            int slot = page.alloc(info, true);
+            if (slot == -1) continue;
+            info.page_current = page;
+            stat_scanSteps.add(scan);
+            return slotHandle(page, slot);
+        } /* PARTIAL DIRECTORY END */
+
+        /* then, the page the placement policy picks to build on */
+        if (placement_policy != null)
+        {
+            long handle = placeSlot(info, false);
+            if (handle != -1) return handle;
+        }
+
+        /* then, pages with never used slots */
+        for (int i = info_openCount - 1; i >= 0; i--)
+        {
+            scan++;
+            page = buffer_openPages[i];
+
+            /* drop pages that were cleaned or have no empty slots */
+            if (page.info_dead || !page.hasRoom())
+            {
+                page.list_open = false;
+                buffer_openPages[i] = buffer_openPages[--info_openCount];
+                buffer_openPages[info_openCount] = null;
+                continue;
+            }
+
+            /* may still fail when page diversity is exhausted */
+            int slot = page.alloc(info, true);
+            if (slot == -1) continue;
+            info.page_current = page;
+            stat_scanSteps.add(scan);
+            return slotHandle(page, slot);
+        } /* OPEN DIRECTORY END */
+        stat_scanSteps.add(scan);
+
+        /* finally, create a new page */
+        page = createPage();
+        if (page == null)
+        {
+            System.err.printf("OUT OF PAGES!\n");
+            return -1;
+        }
+        int slot = page.alloc(info, true);
+        if (slot == -1) return -1;
+        info.page_current = page;
+        return slotHandle(page, slot);
+    } /* ALLOCATE SLOT FUNCTION END */
+
+    /* ===== PAGEVIEW CLASS ===== */
+    /* read-only view of the pages handed to placement policies */
+    private final class PageView implements PlacementPolicy.Pages
+    {
+        public int info_scan = 0; /* exists calls since last reset */
+        /* hides empty, sparse and draining pages when set */
+        public boolean info_inUse = false;
+
+        public int pageCount() { return info_pageTop; }
+
+        public boolean exists(int page)
+        {
+            info_scan++;
+            Page target = buffer_pages[page];
+            if (target == null || target.info_dead) return false;
+            return !info_inUse || (!target.info_draining &&
+                target.info_bufferuse > 0 && !sparse(target));
+        }
+
+        public int size(int page) { return buffer_pages[page].info_size; }
+        public int used(int page) { return buffer_pages[page].info_bufferuse; }
+        public int classes(int page) { return buffer_pages[page].info_diversity; }
+
+        public boolean hasFree(int page, int classId)
+        {
+            Page target = buffer_pages[page];
+            int div = div(target, classId);
+            return div != -1 && target.list_typeHead[div] != LISTEND;
+        }
+
+        public boolean canBuild(int page, int classId)
+        {
+            Page target = buffer_pages[page];
+            if (!target.hasRoom()) return false;
+            return div(target, classId) != -1 ||
+                target.info_diversity < target.info_divSize;
+        }
+
+        public boolean hosts(int page, int classId)
+        {
+            return div(buffer_pages[page], classId) != -1;
+        }
+
+        /* returns div index of class on page, -1 if it has none */
+        private int div(Page target, int classId)
+        {
+            for (int i = 0; i < target.info_diversity; i++)
+            {
+                if (target.buffer_divMap[i].info_id == classId) return i;
+            }
+            return -1;
+        }
+    } /* PAGEVIEW CLASS BLOCK END */
+
+    private final PageView pageView = new PageView();
+
+    /* ===== PLACE SLOT FUNCTION ===== */
+    /* caller must hold lock. allocs from the page the placement */
+    /* policy picks. when reusing, the policy may pick no page, */
+    /* leaving the free instances of class to the partial */
+    /* directory. otherwise a new page is created if it picks */
+    /* none. returns handle, -1 if the pick could not serve the */
+    /* class */
+    private long placeSlot(TypeInfo info, boolean reuse)
+    {
+        pageView.info_scan = 0;
+        int index = placement_policy.place(pageView, info.info_id, reuse);
+        stat_scanSteps.add(pageView.info_scan);
+
+        Page page = index >= 0 && index < buffer_pages.length
+            ? buffer_pages[index] : null;
+        if (page == null || page.info_dead)
+        {
+            if (reuse) return -1;
+            page = createPage();
+        }
+        if (page == null) return -1;
+
+        int slot = page.alloc(info, true);
+        if (slot == -1) return -1;
+        info.page_current = page;
+        return slotHandle(page, slot);
+    } /* PLACE SLOT FUNCTION END */
+
+    /* ===== POLICY PAGE FUNCTION ===== */
+    /* caller must hold lock. returns the page the placement */
+    /* policy picks to take a free instance of class that was */
+    /* built or moved rather than freed, null if it picks none. */
+    /* when inUse is set, the policy only sees pages in use that */
+    /* are neither sparse nor draining */
+    private Page policyPage(TypeInfo info, boolean inUse)
+    {
+        pageView.info_scan = 0;
+        pageView.info_inUse = inUse;
+        int index = placement_policy.place(pageView, info.info_id, false);
+        pageView.info_inUse = false;
+        stat_scanSteps.add(pageView.info_scan);
+
+        if (index < 0 || index >= buffer_pages.length) return null;
+        Page page = buffer_pages[index];
+        return page == null || page.info_dead ? null : page;
+    } /* POLICY PAGE FUNCTION END */
+
+    /* ===== CREATE PAGE FUNCTION ===== */
+    /* creates a page at the first hole of the page buffer, */
+    /* growing it when full, and adds the page to the open */
+    /* directory. returns null once handles can't address it */
+    private Page createPage()
+    {
+        /* page and slot must fit the low 32 bits of a handle */
+        int maxPages = (int)Math.min(1L << (32 - info_slotBits),
+            Integer.MAX_VALUE - 8);
+
+        for (int i = info_pageHint; i < maxPages; i++)
+        {
+            /* on end of buffer, grow it */
+            if (i == buffer_pages.length)
+            {
+                int size = (int)Math.min(2L * buffer_pages.length, maxPages);
+                trace(MemTrace.PAGEGROW, -1, size, -1);
+                buffer_pages = Arrays.copyOf(buffer_pages, size);
+            }
+            if (buffer_pages[i] != null) continue;
+
+            Page page = new Page(i, info_pageSize, info_divSize);
+            buffer_pages[i] = page;
+            info_pageHint = i + 1;
+            info_pageTop = Math.max(info_pageTop, i + 1);
+            info_pageCount++;
+            stat_pagesCreated.increment();
+            trace(MemTrace.PAGECREATE, i, info_pageSize, -1);
+
+            if (jfr_events)
+            {
+                PageCreateEvent event = new PageCreateEvent();
+                event.pageIndex = i;
+                event.pageSize = info_pageSize;
+                event.pageCount = info_pageCount;
+                event.commit();
+            }
+
+            openPush(page);
+            return page;
+        }
+        return null;
+    } /* CREATE PAGE FUNCTION END */
+
+    /* ===== OPEN PUSH FUNCTION ===== */
+    /* adds a page with slots without instance to the open */
+    /* directory */
+    private void openPush(Page page)
+    {
+        page.list_open = true;
+        if (info_openCount == buffer_openPages.length)
+        {
+            buffer_openPages = Arrays.copyOf(buffer_openPages,
+                info_openCount * 2);
+        }
+        buffer_openPages[info_openCount++] = page;
+    } /* OPEN PUSH FUNCTION END */
+
+    /* ===== SLOT HANDLE FUNCTION ===== */
+    private long slotHandle(Page page, int slot)
+    {
+        return makeHandle(page.info_index, slot,
+            page.buffer_generation[slot]);
+    } /* SLOT HANDLE FUNCTION END */
+
+    /* ===== ALLOCATE OBJECT FUNCTION ===== */
+    /* caller must hold lock. returns null on failure */
+    private Object allocObject(Class type)
+    {
+        long handle = allocSlot(type);
+        if (handle == -1) return null;
+        return lease(handle);
+    } /* ALLOCATE OBJECT FUNCTION END */
+
+    /* ===== ALLOCATE SCOPED FUNCTION ===== */
+    /* caller must hold lock. allocs a slot and records it in */
+    /* scope. read the instance before letting go of the lock, */
+    /* as other threads may grow or trim the pages after. */
+    /* returns handle, -1 on failure */
+    private long allocScoped(Class type, MemScope scope)
+    {
+        long handle = allocSlot(type);
+        if (handle != -1) scope.record(handle);
+        return handle;
+    } /* ALLOCATE SCOPED FUNCTION END */
+
+    /* ===== ALLOCATE FUNCTION ===== */
+    public Object alloc(Class type)
+    {
+        /* inside a scope, alloc a slot the scope records */
+        if (info_scopeCount > 0)
+        {
+            MemScope scope = scopes.get();
+            if (scope != null)
+            {
+                lock.lock();
+                try
+                {
+                    long handle = allocScoped(type, scope);
+                    if (handle == -1) return null;
+                    return buffer_pages[handlePage(handle)]
+                        .buffer_data[handleSlot(handle)];
+                }
+                finally { lock.unlock(); }
+            }
+        }
+
+        /* magazines and depots would hold on to what they lend, */
+        /* so leak tracking always takes the lock */
+        if (!leak_tracking)
+        {
+            /* in lockfree mode, alloc from the class's shared depot, */
+            /* as virtual threads do in concurrent mode */
+            boolean virtual = concurrent_mode && virtualThread();
+            if (lockfree_mode || virtual) return depotAlloc(type);
+
+            /* in concurrent mode, alloc from thread's magazine */
+            if (concurrent_mode) return magazines.get().alloc(type);
+        }
+
+        lock.lock();
+        try { return allocObject(type); }
+        finally { lock.unlock(); }
+    } /* ALLOC FUNCTION END */
+
+    /* ===== ALLOCATE BATCH FUNCTION ===== */
+    /* fills out[0, n) with instances of type, a page run at a */
+    /* time. returns count of objects allocated, less than n only */
+    /* on failure */
+    public int allocBatch(Class type, int n, Object[] out)
+    {
+        if (type == null || out == null || n < 0)
+        {
+            System.err.printf("COULD NOT ALLOC BATCH: Bad arguments\n");
+            return 0;
+        }
+        n = Math.min(n, out.length);
+
+        /* inside a scope, every handle must be recorded */
+        if (info_scopeCount > 0)
+        {
+            MemScope scope = scopes.get();
+            if (scope != null)
+            {
+                lock.lock();
+                try
+                {
+                    int filled = 0;
+                    for (; filled < n; filled++)
+                    {
+                        long handle = allocScoped(type, scope);
+                        if (handle == -1) break;
+                        out[filled] = buffer_pages[handlePage(handle)]
+                            .buffer_data[handleSlot(handle)];
+                    }
+                    return filled;
+                }
+                finally { lock.unlock(); }
+            }
+        }
+
+        lock.lock();
+        try
+        {
+            TypeInfo info = typeInfo(type);
+            int filled = 0;
+            while (filled < n)
+            {
+                /* fill from current page while it has room */
+                Page page = info.page_current;
+                if (page != null && !page.info_dead)
+                {
+                    int count = page.allocBatch(info, out, filled, n);
+                    filled += count;
+                    if (count > 0) continue;
+                }
+
+                /* on exhausted page, a single alloc moves the */
+                /* current page through the directories */
+                long handle = allocSlot(type);
+                if (handle == -1) break;
+                out[filled++] = lease(handle);
+            } /* PAGE RUN LOOP END */
+            return filled;
+        }
+        finally { lock.unlock(); }
+    } /* ALLOCATE BATCH FUNCTION END */
+
+    /* ===== ALLOCATE ARRAY FUNCTION ===== */
+    /* returns an array of component type with at least minLength */
+    /* elements, rounded up to a power of two, null on failure. */
+    /* contents are left from the last use, so clear if needed. */
+    /* arrays always bypass magazines */
+    public Object allocArray(Class component, int minLength)
+    {
+        if (component == null || component == void.class ||
+            minLength < 0 || minLength > 1 << MAXARRAYBIN)
+        {
+            System.err.printf("COULD NOT ALLOC ARRAY\n");
+            return null;
+        }
+        int bin = arrayBin(minLength);
+
+        MemScope scope = info_scopeCount > 0 ? scopes.get() : null;
+        lock.lock();
+        try
+        {
+            long handle = allocSlot(arrayInfo(component, bin));
+            if (handle == -1) return null;
+            if (scope != null) scope.record(handle);
+            return lease(handle);
+        }
+        finally { lock.unlock(); }
+    } /* ALLOCATE ARRAY FUNCTION END */
+
+    /* ===== HANDLE FUNCTIONS ===== */
+    /* a handle's low 32 bits hold the slot address, the page */
+    /* index shifted above the slot bits of the page geometry. */
+    /* the high 32 bits hold the slot's alloc stamp */
+    private long makeHandle(int page, int slot, int generation)
+    {
+        long address = ((long)page << info_slotBits) | slot;
+        return address | ((long)generation << HANDLEGENSHIFT);
+    }
+
+    private int handleSlot(long handle)
+    {
+        return (int)(handle & ((1L << info_slotBits) - 1));
+    }
+
+    private int handlePage(long handle)
+    {
+        return (int)((handle & 0xFFFFFFFFL) >>> info_slotBits);
+    }
+
+    private static int handleGeneration(long handle)
+    {
+        return (int)(handle >>> HANDLEGENSHIFT);
+    }
+
+    /* returns page of a live handle, null if stale or invalid */
+    private Page handleCheck(long handle)
+    {
+        int page = handlePage(handle);
+        int slot = handleSlot(handle);
+        int generation = handleGeneration(handle);
+        if (generation == 0 || page >= buffer_pages.length) return null;
+        Page target = buffer_pages[page];
+        if (target == null || slot >= target.info_bumped) return null;
+        if (target.buffer_generation[slot] != generation) return null;
+        return target;
+    } /* HANDLE FUNCTIONS END */
+
+    /* ===== ALLOCATE HANDLE FUNCTION ===== */
+    /* returns handle to allocated object, -1 on failure. */
+    /* handles always bypass magazines */
+    public long allocHandle(Class type)
+    {
+        /* inside a scope, the scope records the handle */
+        if (info_scopeCount > 0)
+        {
+            MemScope scope = scopes.get();
+            if (scope != null)
+            {
+                lock.lock();
+                try { return allocScoped(type, scope); }
+                finally { lock.unlock(); }
+            }
+        }
+
+        lock.lock();
+        try { return allocSlot(type); }
+        finally { lock.unlock(); }
+    } /* ALLOCATE HANDLE FUNCTION END */
+
+    /* ===== GET FUNCTION ===== */
+    /* returns object of handle, null if handle is stale */
+    public Object get(long handle)
+    {
+        lock.lock();
+        try
+        {
+            Page target = handleCheck(handle);
+            if (target == null) return null;
+            return target.buffer_data[handleSlot(handle)];
+        }
+        finally { lock.unlock(); }
+    } /* GET FUNCTION END */
+
+    /* ===== TRIM MARK FUNCTION ===== */
+    /* caller must hold lock. called when a page empties, only */
+    /* stamps it and makes it a candidate for the trimmer */
+    private void trimMark(Page page)
+    {
+        page.info_emptySince = System.nanoTime();
+        if (page.list_candidate) return;
+        page.list_candidate = true;
+        if (info_candidateCount == buffer_candidates.length)
+        {
+            buffer_candidates = Arrays.copyOf(buffer_candidates,
+                info_candidateCount * 2);
+        }
+        buffer_candidates[info_candidateCount++] = page;
+    } /* TRIM MARK FUNCTION END */
+
+    /* ===== TRIM UNMARK FUNCTION ===== */
+    /* caller must hold lock. called when free instances are */
+    /* placed into a page, which is no longer left empty */
+    private void trimUnmark(Page page)
+    {
+        if (!page.list_candidate) return;
+        page.list_candidate = false;
+        for (int i = 0; i < info_candidateCount; i++)
+        {
+            if (buffer_candidates[i] != page) continue;
+            buffer_candidates[i] = buffer_candidates[--info_candidateCount];
+            buffer_candidates[info_candidateCount] = null;
+            return;
+        }
+    } /* TRIM UNMARK FUNCTION END */
+
+    /* ===== PAGE CLEAN FUNCTION ===== */
+    /* drops every empty page now. pages are otherwise only */
+    /* dropped by the trimmer, never by frees */
+    public void pageClean()
+    {
+        lock.lock();
+        try { trimLocked(0); }
+        finally { lock.unlock(); }
+    } /* PAGECLEAN FUNCTION END */
+
+    /* ===== TRIM FUNCTION ===== */
+    /* caller must hold lock. drops candidates that stayed empty */
+    /* for at least idle nanos, leaving the rest for a later */
+    /* pass. returns count of pages dropped */
+    private int trimLocked(long idleNanos)
+    {
+        long now = System.nanoTime();
+        int cleanCount = 0;
+        for (int i = info_candidateCount - 1; i >= 0; i--)
+        {
+            Page page = buffer_candidates[i];
+
+            /* keep pages that are still empty but not idle enough */
+            if (!page.info_dead && page.info_bufferuse == 0 &&
+                now - page.info_emptySince < idleNanos) continue;
+
+            /* otherwise the page leaves the candidates */
+            page.list_candidate = false;
+            buffer_candidates[i] = buffer_candidates[--info_candidateCount];
+            buffer_candidates[info_candidateCount] = null;
+            if (page.info_dead || page.info_bufferuse != 0) continue;
+            dropPage(page);
+            cleanCount++;
+        } /* CANDIDATE LOOP END */
+        return cleanCount;
+    } /* TRIM FUNCTION END */
+
+    /* ===== DROP PAGE FUNCTION ===== */
+    /* caller must hold lock. removes an empty page, letting the */
+    /* GC take it and it's free instances */
+    private void dropPage(Page page)
+    {
+        int index = page.info_index;
+        page.unindex();
+        page.info_dead = true;
+        buffer_pages[index] = null;
+        info_pageHint = Math.min(info_pageHint, index);
+        while (info_pageTop > 0 && buffer_pages[info_pageTop - 1] == null)
+        {
+            info_pageTop--;
+        }
+        info_pageCount--;
+        stat_pagesCleaned.increment();
+        trace(MemTrace.PAGECLEAN, index, 0, -1);
+    } /* DROP PAGE FUNCTION END */
+
+    /* ===== COMPACT FUNCTION ===== */
+    /* moves free instances out of sparse pages into the never */
+    /* used slots of the densest open pages, then drops sparse */
+    /* pages left with no live objects. the trimmer compacts on */
+    /* every pass. returns count of pages dropped */
+    public int compact()
+    {
+        lock.lock();
+        try { return compactLocked(); }
+        finally { lock.unlock(); }
+    } /* COMPACT FUNCTION END */
+
+    /* caller must hold lock. a page is sparse when every slot */
+    /* was used once and at most a quarter of them are live. a */
+    /* sparse page whose free instances all moved is left */
+    /* draining: it's freed slots are retired rather than made */
+    /* reusable, so it only drains, and is dropped once empty. */
+    /* free instances that find no room stay where they are. */
+    /* with a placement policy, the policy picks each target */
+    private int compactLocked()
+    {
+        /* collect open pages in use, and sparse pages */
+        ArrayList<Page> targets = new ArrayList<>();
+        ArrayList<Page> sparse = new ArrayList<>();
+        for (Page page : buffer_pages)
+        {
+            if (page == null || page.info_draining) continue;
+            if (sparse(page))
+            {
+                sparse.add(page);
+            }
+            else if (page.hasRoom() && page.info_bufferuse > 0)
+            {
+                /* empty pages may be trimmed, never move into them */
+                targets.add(page);
+            }
+        } /* PAGE SORT LOOP END */
+        targets.sort((a, b) -> b.info_bufferuse - a.info_bufferuse);
+
+        int dropCount = 0;
+        int target = 0;
+        for (Page page : sparse)
+        {
+            int moved = 0;
+            boolean kept = false;
+            for (int d = 0; d < page.info_diversity; d++)
+            {
+                TypeInfo info = page.buffer_divMap[d];
+
+                /* retire each free slot whose instance a target */
+                /* adopts, keep the rest on the page */
+                int i;
+                while ((i = page.list_typeHead[d]) != LISTEND)
+                {
+                    Object instance = page.buffer_data[i];
+                    slotIndex.remove(instance);
+
+                    boolean adopted = false;
+                    if (placement_policy != null)
+                    {
+                        Page pick = policyPage(info, true);
+                        adopted = pick != null && pick.adopt(info, instance,
+                            page.buffer_freedAt[i]) != -1;
+                    }
+                    else
+                    {
+                        /* skip full targets, may run out of them */
+                        while (target < targets.size() &&
+                            !targets.get(target).hasRoom())
+                            target++;
+                        for (int t = target; t < targets.size() && !adopted;
+                            t++)
+                        {
+                            adopted = targets.get(t).adopt(info, instance,
+                                page.buffer_freedAt[i]) != -1;
+                        }
+                    }
+                    if (!adopted)
+                    {
+                        if (!info.info_soft)
+                        {
+                            slotIndex.put(instance,
+                                indexValue(page.info_index, i));
+                        }
+                        kept = true;
+                        break;
+                    }
+
+                    page.list_typeHead[d] = page.buffer_next[i];
+                    page.retire(i);
+                    info.info_freeCount--;
+                    moved++;
+                } /* FREE LIST LOOP END */
+            } /* DIV LOOP END */
+            if (moved > 0) trace(MemTrace.COMPACT, page.info_index, moved, -1);
+            if (kept) continue;
+
+            /* page held only free instances */
+            if (page.info_bufferuse == 0)
+            {
+                dropPage(page);
+                dropCount++;
+                continue;
+            }
+
+            /* retire emptied slots too, the page only drains now */
+            page.list_holeHead = LISTEND;
+            page.info_draining = true;
+        } /* SPARSE PAGE LOOP END */
+        return dropCount;
+    } /* COMPACT LOCKED FUNCTION END */
+
+    /* every slot was used once, at most a quarter are live */
+    private static boolean sparse(Page page)
+    {
+        return page.info_bumped == page.info_size &&
+            page.info_bufferuse * COMPACTRATIO <= page.info_size;
+    }
+
+    /* ===== REHOME FUNCTION ===== */
+    /* caller must hold lock. moves an instance freed on a */
+    /* draining page into an open page in use, letting the GC */
+    /* have it if none has room. with a placement policy, the */
+    /* policy picks the page */
+    private void rehome(TypeInfo info, Object instance)
+    {
+        Object held = info.info_soft ? new SoftReference<Object>(instance)
+            : instance;
+        if (placement_policy != null)
+        {
+            Page page = policyPage(info, true);
+            if (page != null) page.adopt(info, held, clockTick());
+            return;
+        }
+        for (int i = info_openCount - 1; i >= 0; i--)
+        {
+            Page page = buffer_openPages[i];
+            if (page.info_dead || page.info_draining ||
+                page.info_bufferuse == 0) continue;
+            if (page.adopt(info, held, clockTick()) != -1) return;
+        }
+    } /* REHOME FUNCTION END */
+
+    /* ===== CLOCK FUNCTION ===== */
+    /* coarse clock for idle times, one tick is about a millisecond. */
+    /* wraps, so only compare differences */
+    private static int clockTick()
+    {
+        return (int)(System.nanoTime() >>> CLOCKSHIFT);
+    } /* CLOCK FUNCTION END */
+
+    /* ===== LIMIT FUNCTION ===== */
+    /* caps the free instances a class keeps pooled, by count */
+    /* and by estimated bytes, and evicts free instances idle */
+    /* longer than idle millis. negative values are unlimited. */
+    /* when soft is set, free instances are only softly held, so */
+    /* the GC may take them under memory pressure. soft can only */
+    /* change while no instances of class are free. arrays are */
+    /* pooled by size class, see limitArray(). returns 1 on */
+    /* sucess, 0 on failure */
+    public int limit(Class type, int maxFree, long maxBytes,
+        long idleMillis, boolean soft)
+    {
+        if (type == null)
+        {
+            System.err.printf("COULD NOT LIMIT CLASS\n");
+            return 0;
+        }
+        if (type.isArray())
+        {
+            System.err.printf("COULD NOT LIMIT CLASS: Use limitArray\n");
+            return 0;
+        }
+
+        lock.lock();
+        try
+        {
+            TypeInfo info = typeInfo(type);
+            if (info.info_bytes == 0) info.info_bytes = shallowSize(type);
+            return limitLocked(info, maxFree, maxBytes, idleMillis, soft);
+        }
+        finally { lock.unlock(); }
+    } /* LIMIT FUNCTION END */
+
+    /* ===== LIMIT ARRAY FUNCTION ===== */
+    /* as limit(), for the size class allocArray(component, */
+    /* length) allocs from. bytes count whole arrays of the size */
+    /* class. returns 1 on sucess, 0 on failure */
+    public int limitArray(Class component, int length, int maxFree,
+        long maxBytes, long idleMillis, boolean soft)
+    {
+        if (component == null || component == void.class ||
+            length < 0 || length > 1 << MAXARRAYBIN)
+        {
+            System.err.printf("COULD NOT LIMIT ARRAY\n");
+            return 0;
+        }
+        int bin = arrayBin(length);
+
+        lock.lock();
+        try
+        {
+            TypeInfo info = arrayInfo(component, bin);
+            if (info.info_bytes == 0)
+                info.info_bytes = arraySize(component, 1 << bin);
+            return limitLocked(info, maxFree, maxBytes, idleMillis, soft);
+        }
+        finally { lock.unlock(); }
+    } /* LIMIT ARRAY FUNCTION END */
+
+    /* caller must hold lock. returns 1 on sucess, 0 on failure */
+    private int limitLocked(TypeInfo info, int maxFree, long maxBytes,
+        long idleMillis, boolean soft)
+    {
+        if (soft != info.info_soft && info.info_freeCount > 0)
+        {
+            System.err.printf("COULD NOT LIMIT CLASS: Free instances\n");
+            return 0;
+        }
+        info.info_maxFree = Math.max(maxFree, -1);
+        info.info_maxBytes = Math.max(maxBytes, -1);
+        info.info_idleTicks = idleMillis < 0 ? -1 : (int)Math.min(
+            (idleMillis * 1000000L) >>> CLOCKSHIFT, Integer.MAX_VALUE);
+        info.info_soft = soft;
+        return 1;
+    } /* LIMIT LOCKED FUNCTION END */
+
+    /* ===== SHALLOW SIZE FUNCTIONS ===== */
+    /* estimates bytes of an instance from it's fields, assuming */
+    /* a 12 byte header, compressed references and 8 byte align */
+    private static long shallowSize(Class type)
+    {
+        long size = 12;
+        for (Class c = type; c != null; c = c.getSuperclass())
+        {
+            for (java.lang.reflect.Field field : c.getDeclaredFields())
+            {
+                if (java.lang.reflect.Modifier.isStatic(field.getModifiers()))
+                    continue;
+                Class t = field.getType();
+                if (t == long.class || t == double.class) size += 8;
+                else if (t == int.class || t == float.class) size += 4;
+                else if (t == short.class || t == char.class) size += 2;
+                else if (t == byte.class || t == boolean.class) size += 1;
+                else size += 4;
+            }
+        }
+        return (size + 7) & ~7L;
+    }
+
+    /* estimates bytes of an array, assuming a 16 byte header */
+    /* with it's length, compressed references and 8 byte align */
+    private static long arraySize(Class component, int length)
+    {
+        long element = 4;
+        if (component == long.class || component == double.class)
+            element = 8;
+        else if (component == short.class || component == char.class)
+            element = 2;
+        else if (component == byte.class || component == boolean.class)
+            element = 1;
+        return (16 + element * length + 7) & ~7L;
+    } /* SHALLOW SIZE FUNCTIONS END */
+
+    /* ===== EVICT FUNCTION ===== */
+    /* lets go of free instances idle past their class limit, and */
+    /* of soft ones the GC took. the trimmer evicts on every pass. */
+    /* returns count of instances evicted */
+    public int evict()
+    {
+        lock.lock();
+        try { return evictLocked(); }
+        finally { lock.unlock(); }
+    } /* EVICT FUNCTION END */
+
+    /* caller must hold lock */
+    private int evictLocked()
+    {
+        int now = clockTick();
+        int evicted = 0;
+        for (Page page : buffer_pages)
+        {
+            if (page == null) continue;
+            int count = page.evict(now);
+            if (count == 0) continue;
+            evicted += count;
+            trace(MemTrace.EVICT, page.info_index, count, -1);
+        }
+        stat_evictions.add(evicted);
+        return evicted;
+    } /* EVICT LOCKED FUNCTION END */
+
+    /* ===== ADAPT FUNCTION ===== */
+    /* closes the current demand bucket of every class and sizes */
+    /* it's free instances from the window. classes without allocs */
+    /* in the window keep none. others keep enough to reach their */
+    /* window peak again, or to repeat the growth of the last */
+    /* pass, built ahead of time so bursts don't construct */
+    public void adapt()
+    {
+        lock.lock();
+        try { adaptLocked(); }
+        finally { lock.unlock(); }
+    } /* ADAPT FUNCTION END */
+
+    /* caller must hold lock */
+    private void adaptLocked()
+    {
+        for (TypeInfo info : buffer_types.values()) adaptType(info);
+        for (TypeInfo[] bins : buffer_arrayTypes.values())
+        {
+            for (TypeInfo info : bins)
+            {
+                if (info != null) adaptType(info);
+            }
+        }
+    } /* ADAPT LOCKED FUNCTION END */
+
+    /* caller must hold lock */
+    private void adaptType(TypeInfo info)
+    {
+        /* close bucket of this pass */
+        int w = info.info_window;
+        int growth = info.info_allocs - info.info_frees;
+        info.buffer_allocs[w] = info.info_allocs;
+        info.buffer_peaks[w] = info.info_peak;
+        info.info_window = (w + 1) % DEMANDWINDOW;
+        info.info_allocs = 0;
+        info.info_frees = 0;
+        info.info_peak = info.info_live;
+
+        int allocs = 0;
+        int peak = 0;
+        for (int i = 0; i < DEMANDWINDOW; i++)
+        {
+            allocs += info.buffer_allocs[i];
+            peak = Math.max(peak, info.buffer_peaks[i]);
+        }
+
+        int target = allocs == 0 ? 0 :
+            Math.max(peak - info.info_live, growth);
+        if (info.info_freeCount < target)
+        {
+            reserveLocked(info,
+                Math.min(target - info.info_freeCount, RESERVESTEP));
+        }
+        else if (info.info_freeCount > target)
+        {
+            shedLocked(info, info.info_freeCount - target);
+        }
+    } /* ADAPT TYPE FUNCTION END */
+
+    /* ===== RESERVE FUNCTION ===== */
+    /* fills pages with count ready free instances of type before */
+    /* traffic arrives, so first allocs don't construct. large */
+    /* reserves are built in parallel on the common ForkJoin pool, */
+    /* so the class factory must be thread safe. stops at the */
+    /* class quota. returns count of instances reserved */
+    public int reserve(Class type, int count)
+    {
+        return reserve(new Class[] { type }, new int[] { count });
+    } /* RESERVE FUNCTION END */
+
+    /* ===== RESERVE BATCH FUNCTION ===== */
+    /* reserves counts[i] instances of types[i] for each i, all */
+    /* classes built at once. returns total count reserved */
+    public int reserve(Class[] types, int[] counts)
+    {
+        if (types == null || counts == null || types.length != counts.length)
+        {
+            System.err.printf("COULD NOT RESERVE\n");
+            return 0;
+        }
+
+        /* look up factories, trimming counts to quotas */
+        Supplier[] factories = new Supplier[types.length];
+        Object[][] instances = new Object[types.length][];
+        int total = 0;
+        lock.lock();
+        try
+        {
+            for (int i = 0; i < types.length; i++)
+            {
+                if (types[i] == null || counts[i] < 0)
+                {
+                    System.err.printf("COULD NOT RESERVE\n");
+                    return 0;
+                }
+                TypeInfo info = typeInfo(types[i]);
+                factories[i] = info.factory;
+                if (info.factory == null)
+                {
+                    System.err.printf("COULD NOT BUILD CLASS\n");
+                    continue;
+                }
+                instances[i] = new Object[reserveRoom(info, counts[i])];
+                total += instances[i].length;
+            }
+        }
+        finally { lock.unlock(); }
+
+        /* build without the lock, so factories may use Mem */
+        final boolean parallel = total >= PARALLELRESERVE;
+        int[] built = new int[types.length];
+        IntStream classes = IntStream.range(0, types.length);
+        (parallel ? classes.parallel() : classes).forEach(i ->
+        {
+            if (instances[i] != null)
+                built[i] = build(factories[i], instances[i], parallel);
+        });
+
+        int reserved = 0;
+        lock.lock();
+        try
+        {
+            for (int i = 0; i < types.length; i++)
+            {
+                if (built[i] == 0) continue;
+                reserved += placeLocked(typeInfo(types[i]), instances[i],
+                    built[i]);
+            }
+        }
+        finally { lock.unlock(); }
+        return reserved;
+    } /* RESERVE BATCH FUNCTION END */
+
+    /* ===== RESERVE ROOM FUNCTION ===== */
+    /* caller must hold lock. returns how many of count free */
+    /* instances class may still take under it's quota */
+    private int reserveRoom(TypeInfo info, int count)
+    {
+        if (info.info_maxFree >= 0)
+        {
+            count = Math.min(count,
+                Math.max(info.info_maxFree - info.info_freeCount, 0));
+        }
+        if (info.info_maxBytes >= 0 && info.info_bytes > 0)
+        {
+            long room = info.info_maxBytes / info.info_bytes -
+                info.info_freeCount;
+            count = (int)Math.min(count, Math.max(room, 0));
+        }
+        return count;
+    } /* RESERVE ROOM FUNCTION END */
+
+    /* ===== BUILD FUNCTION ===== */
+    /* fills out with new instances from factory, packing failed */
+    /* builds out of the front. returns count built */
+    private int build(Supplier factory, Object[] out,
+        boolean parallel)
+    {
+        IntFunction<Object> make = i ->
+        {
+            try { return factory.get(); }
+            catch (Throwable exception) { return null; }
+        };
+        if (parallel) Arrays.parallelSetAll(out, make);
+        else Arrays.setAll(out, make);
+
+        int built = 0;
+        for (int i = 0; i < out.length; i++)
+        {
+            if (out[i] != null) out[built++] = out[i];
+        }
+        Arrays.fill(out, built, out.length, null);
+        stat_constructs.add(built);
+        return built;
+    } /* BUILD FUNCTION END */
+
+    /* ===== RESERVE LOCKED FUNCTION ===== */
+    /* caller must hold lock. builds up to count free instances */
+    /* of class in the calling thread. returns count placed */
+    private int reserveLocked(TypeInfo info, int count)
+    {
+        if (info.factory == null) return 0;
+        Object[] instances = new Object[reserveRoom(info, count)];
+        int built = build(info.factory, instances, false);
+        return placeLocked(info, instances, built);
+    } /* RESERVE LOCKED FUNCTION END */
+
+    /* ===== PLACE LOCKED FUNCTION ===== */
+    /* caller must hold lock. places instances[0, count) as free */
+    /* instances of class into pages with room, creating pages */
+    /* as needed. with a placement policy, the policy picks a */
+    /* page each time the last one fills. returns count placed, */
+    /* the rest are dropped */
+    private int placeLocked(TypeInfo info, Object[] instances,
+        int count)
+    {
+        int placed = 0;
+        int open = info_openCount - 1;
+        int now = clockTick();
+        Page page = placement_policy == null ? info.page_current : null;
+        for (; placed < count && !info.overQuota(); placed++)
+        {
+            Object instance = instances[placed];
+            if (info.info_soft) instance = new SoftReference<Object>(instance);
+
+            /* move on through the policy's pick or open pages, */
+            /* then new ones */
+            boolean asked = placement_policy == null;
+            while (page == null || page.info_dead ||
+                page.adopt(info, instance, now) == -1)
+            {
+                if (!asked)
+                {
+                    page = policyPage(info, false);
+                    asked = true;
+                }
+                else if (placement_policy == null && open >= 0)
+                    page = buffer_openPages[open--];
+                else if ((page = createPage()) == null) break;
+            }
+            if (page == null) break;
+        } /* PLACE LOOP END */
+
+        trace(MemTrace.RESERVE, -1, placed, info.info_id);
+        return placed;
+    } /* PLACE LOCKED FUNCTION END */
+
+    /* ===== SHED LOCKED FUNCTION ===== */
+    /* caller must hold lock. lets go of count free instances of */
+    /* class, from the last pages first so they may be trimmed. */
+    /* returns count let go */
+    private int shedLocked(TypeInfo info, int count)
+    {
+        int shed = 0;
+        for (int p = buffer_pages.length - 1; p >= 0 && shed < count; p--)
+        {
+            if (buffer_pages[p] == null) continue;
+            shed += buffer_pages[p].shed(info, count - shed);
+        }
+        stat_evictions.add(shed);
+        trace(MemTrace.EVICT, -1, shed, info.info_id);
+        return shed;
+    } /* SHED LOCKED FUNCTION END */
+
+    /* ===== TRIMMER MEMBERS ===== */
+    private Thread trimmer_thread;
+    private volatile boolean trimmer_stop = false;
+    private volatile boolean trimmer_pressure = false;
+    private long trimmer_periodNanos;
+    private long trimmer_idleNanos;
+    private NotificationListener trimmer_listener;
+
+    /* heap thresholds are shared by every pool's trimmer. only */
+    /* thresholds nobody else set are armed, by heap pool name */
+    private static final ReentrantLock trimmer_lock = new ReentrantLock();
+    private static final HashMap<String, Long> trimmer_armed =
+        new HashMap<>();
+    private static int trimmer_watchers = 0;
+
+    /* ===== START TRIMMER FUNCTION ===== */
+    /* starts a daemon thread that every period drops pages left */
+    /* empty for at least idle millis. when pressure is above 0, */
+    /* a heap pool still above that fraction of it's max after a */
+    /* collection makes the trimmer drop all empty pages at once. */
+    /* returns 1 on sucess, 0 on failure */
+    public int startTrimmer(long periodMillis, long idleMillis,
+        double pressure)
+    {
+        if (periodMillis < 1 || idleMillis < 0 || pressure >= 1)
+        {
+            System.err.printf("COULD NOT START TRIMMER: Bad arguments\n");
+            return 0;
+        }
+
+        lock.lock();
+        try
+        {
+            if (trimmer_thread != null)
+            {
+                System.err.printf("COULD NOT START TRIMMER: Running\n");
+                return 0;
+            }
+            trimmer_periodNanos = periodMillis * 1000000L;
+            trimmer_idleNanos = idleMillis * 1000000L;
+            trimmer_stop = false;
+            trimmer_pressure = false;
+
+            trimmer_thread = new Thread(this::trimmerLoop, info_name == null
+                ? "Mem trimmer" : "Mem trimmer " + info_name);
+            trimmer_thread.setDaemon(true);
+            trimmer_thread.start();
+            if (pressure > 0) trimmerWatch(pressure);
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* START TRIMMER FUNCTION END */
+
+    /* ===== TRIMMER WATCH FUNCTION ===== */
+    /* arms the collection usage threshold of every heap pool */
+    /* that has none set by anyone else, re-arming those armed */
+    /* by other trimmers. only crossing an armed threshold */
+    /* counts as pressure */
+    private void trimmerWatch(double pressure)
+    {
+        trimmer_lock.lock();
+        try
+        {
+            for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans())
+            {
+                if (pool.getType() != MemoryType.HEAP ||
+                    !pool.isCollectionUsageThresholdSupported()) continue;
+                long max = pool.getUsage().getMax();
+                if (max <= 0) continue;
+
+                /* a threshold changed since it was armed is not ours */
+                Long armed = trimmer_armed.remove(pool.getName());
+                if (pool.getCollectionUsageThreshold() !=
+                    (armed == null ? 0 : armed)) continue;
+                long threshold = (long)(max * pressure);
+                pool.setCollectionUsageThreshold(threshold);
+                trimmer_armed.put(pool.getName(), threshold);
+            }
+            trimmer_watchers++;
+        }
+        finally { trimmer_lock.unlock(); }
+
+        final Thread thread = trimmer_thread;
+        trimmer_listener = (notification, handback) ->
+        {
+            if (!notification.getType().equals(MemoryNotificationInfo
+                .MEMORY_COLLECTION_THRESHOLD_EXCEEDED)) return;
+            String name = MemoryNotificationInfo.from((CompositeData)
+                notification.getUserData()).getPoolName();
+            trimmer_lock.lock();
+            try { if (!trimmer_armed.containsKey(name)) return; }
+            finally { trimmer_lock.unlock(); }
+            trimmer_pressure = true;
+            LockSupport.unpark(thread);
+        };
+        ((NotificationEmitter)ManagementFactory.getMemoryMXBean())
+            .addNotificationListener(trimmer_listener, null, null);
+    } /* TRIMMER WATCH FUNCTION END */
+
+    /* ===== STOP TRIMMER FUNCTION ===== */
+    /* stops the trimmer. the last trimmer watching the heap */
+    /* disarms the thresholds trimmers armed, unless they were */
+    /* changed since */
+    public void stopTrimmer()
+    {
+        Thread thread;
+        lock.lock();
+        try
+        {
+            thread = trimmer_thread;
+            if (thread == null) return;
+            trimmer_thread = null;
+            trimmer_stop = true;
+
+            if (trimmer_listener != null)
+            {
+                try
+                {
+                    ((NotificationEmitter)ManagementFactory.getMemoryMXBean())
+                        .removeNotificationListener(trimmer_listener);
+                }
+                catch (ListenerNotFoundException exception) { }
+                trimmer_listener = null;
+
+                /* other pools' trimmers may still watch the heap */
+                trimmer_lock.lock();
+                try
+                {
+                    if (--trimmer_watchers == 0)
+                    {
+                        for (MemoryPoolMXBean pool :
+                            ManagementFactory.getMemoryPoolMXBeans())
+                        {
+                            Long armed = trimmer_armed.get(pool.getName());
+                            if (armed != null &&
+                                pool.getCollectionUsageThreshold() == armed)
+                                pool.setCollectionUsageThreshold(0);
+                        }
+                        trimmer_armed.clear();
+                    }
+                }
+                finally { trimmer_lock.unlock(); }
+            }
+        }
+        finally { lock.unlock(); }
+
+        LockSupport.unpark(thread);
+        try { thread.join(); }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+    } /* STOP TRIMMER FUNCTION END */
+
+    /* ===== TRIMMER LOOP FUNCTION ===== */
+    private void trimmerLoop()
+    {
+        while (!trimmer_stop)
+        {
+            LockSupport.parkNanos(trimmer_periodNanos);
+            if (trimmer_stop) break;
+
+            boolean pressure = trimmer_pressure;
+            trimmer_pressure = false;
+            lock.lock();
+            try
+            {
+                if (info_tracked > 0) collectLocked();
+                evictLocked();
+                if (adaptive_mode) adaptLocked();
+                compactLocked();
+                int cleaned = trimLocked(pressure ? 0 : trimmer_idleNanos);
+                if (pressure)
+                {
+                    stat_pressureTrims.increment();
+                    trace(MemTrace.PRESSURE, -1, cleaned, -1);
+                }
+            }
+            finally { lock.unlock(); }
+        } /* TRIM LOOP END */
+    } /* TRIMMER LOOP FUNCTION END */
+
+    /* ===== FREE FUNCTION ===== */
+    /* returns 1 on sucess, 0 on failure */
+    public int free(Object toFree)
+    {
+        if (!jfr_events) return freeAny(toFree);
+
+        SlowFreeEvent event = new SlowFreeEvent();
+        event.begin();
+        int status = freeAny(toFree);
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.objectClass = toFree == null ? null : toFree.getClass();
+            event.freed = status == 1;
+            event.commit();
+        }
+        return status;
+    } /* FREE FUNCTION END */
+
+    /* ===== FREE ANY FUNCTION ===== */
+    /* frees through magazine or pages. 1 on sucess, 0 on failure */
+    private int freeAny(Object toFree)
+    {
+        /* in lockfree mode, objects lent by a depot go back to it, */
+        /* as they do from virtual threads in concurrent mode */
+        boolean virtual = concurrent_mode && virtualThread();
+        if ((lockfree_mode || virtual) && toFree != null &&
+            depotFree(toFree) == 1)
+            return 1;
+
+        /* in concurrent mode, objects lent by any magazine go */
+        /* straight back to this thread's */
+        if (concurrent_mode && !virtual && magazines.get().free(toFree) == 1)
+            return 1;
+
+        lock.lock();
+        try { return freeObject(toFree); }
+        finally { lock.unlock(); }
+    } /* FREE ANY FUNCTION END */
+
+    /* ===== FREE OBJECT FUNCTION ===== */
+    /* caller must hold lock. returns 1 on sucess, 0 on failure */
+    private int freeObject(Object toFree)
+    {
+        /* look up page and slot of object by identity */
+        long value = indexOf(toFree);
+        if (value == INDEXEMPTY)
+        {
+            System.err.printf("COULD NOT FREE OBJECT\n");
+            stat_failedFrees.increment();
+            trace(MemTrace.FREEFAIL, -1, -1, -1);
+            return 0;
+        }
+
+        int page = indexPage(value);
+        int slot = indexSlot(value);
+
+        /* cached slots stay used, so only free their instance if */
+        /* it was lent out. otherwise it sits in a magazine or depot */
+        boolean cached = (buffer_pages[page].buffer_divField[slot] & CACHED) != 0;
+        if (cached && !unlendLocked(toFree))
+        {
+            System.err.printf("COULD NOT FREE OBJECT\n");
+            stat_failedFrees.increment();
+            trace(MemTrace.FREEFAIL, page, slot, -1);
+            return 0;
+        }
+
+        /* forcefree, fails if object is already free */
+        if (buffer_pages[page].forceFree(slot) == 0)
+        {
+            System.err.printf("COULD NOT FREE OBJECT\n");
+            stat_failedFrees.increment();
+            trace(MemTrace.FREEFAIL, page, slot, -1);
+            return 0;
+        }
+
+        return 1;
+    } /* FREE OBJECT FUNCTION END */
+
+    /* ===== HANDLE FREE FUNCTION ===== */
+    /* returns 1 on sucess, 0 on stale or double free */
+    public int free(long handle)
+    {
+        lock.lock();
+        try
+        {
+            /* generation check rejects stale handles */
+            Page target = handleCheck(handle);
+            if (target == null)
+            {
+                System.err.printf("COULD NOT FREE HANDLE\n");
+                stat_failedFrees.increment();
+                trace(MemTrace.FREEFAIL, handlePage(handle),
+                    handleSlot(handle), -1);
+                return 0;
+            }
+
+            target.forceFree(handleSlot(handle));
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* HANDLE FREE FUNCTION END */
+
+    /* ===== BULK FREE FUNCTION ===== */
+    /* caller must hold lock. frees every live handle of buffer */
+    /* in one pass per page, skipping stale ones. the buffer is */
+    /* reordered. returns count of freed objects */
+    private int freeHandles(long[] handles, int count)
+    {
+        /* swap halves so sorting groups by page, then slot */
+        for (int i = 0; i < count; i++)
+        {
+            handles[i] = (handles[i] << 32) | (handles[i] >>> 32);
+        }
+        Arrays.sort(handles, 0, count);
+
+        int freed = 0;
+        int lastPage = -1;
+        Page target = null;
+        for (int i = 0; i < count; i++)
+        {
+            long handle = (handles[i] << 32) | (handles[i] >>> 32);
+            handles[i] = handle;
+
+            /* only look the page up when it changes */
+            int page = handlePage(handle);
+            if (page != lastPage)
+            {
+                lastPage = page;
+                target = page < buffer_pages.length ?
+                    buffer_pages[page] : null;
+            }
+            if (target == null) continue;
+
+            int slot = handleSlot(handle);
+            if (slot >= target.info_bumped ||
+                target.buffer_generation[slot] != handleGeneration(handle))
+                continue;
+            freed += target.release(slot);
+        } /* PAGE PASS END */
+
+        trace(MemTrace.BULKFREE, -1, freed, -1);
+        return freed;
+    } /* BULK FREE FUNCTION END */
+
+    /* ===== BATCH MEMBERS ===== */
+    private long[] buffer_batch = new long[MAGAZINESIZE];
+
+    /* ===== FREE BATCH FUNCTION ===== */
+    /* frees objs[from, to) in one pass per page. objects that */
+    /* are not pooled or already free are skipped. returns count */
+    /* of freed objects, 0 if the range does not fit objs */
+    public int freeBatch(Object[] objs, int from, int to)
+    {
+        if (objs == null || from < 0 || to > objs.length || from > to)
+        {
+            System.err.printf("COULD NOT FREE BATCH: Bad range\n");
+            stat_failedFrees.increment();
+            return 0;
+        }
+
+        lock.lock();
+        try
+        {
+            if (buffer_batch.length < to - from)
+            {
+                buffer_batch = new long[to - from];
+            }
+
+            /* translate objects to handles of their slots */
+            int count = 0;
+            for (int i = from; i < to; i++)
+            {
+                long value = indexOf(objs[i]);
+                if (value == INDEXEMPTY) continue;
+                Page page = buffer_pages[indexPage(value)];
+                int slot = indexSlot(value);
+
+                /* objects of magazines and depots must be lent out */
+                if ((page.buffer_divField[slot] & CACHED) != 0 &&
+                    !unlendLocked(objs[i])) continue;
+                buffer_batch[count++] = slotHandle(page, slot);
+            }
+
+            int freed = freeHandles(buffer_batch, count);
+            if (freed != to - from)
+            {
+                System.err.printf("COULD NOT FREE %d OBJECTS\n",
+                    to - from - freed);
+                stat_failedFrees.add(to - from - freed);
+            }
+            return freed;
+        }
+        finally { lock.unlock(); }
+    } /* FREE BATCH FUNCTION END */
+
+    /* ===== FREE ARRAY FUNCTION ===== */
+    /* returns an array from allocArray to it's size class. */
+    /* returns 1 on sucess, 0 on failure */
+    public int freeArray(Object array)
+    {
+        if (array == null || !array.getClass().isArray())
+        {
+            System.err.printf("COULD NOT FREE ARRAY\n");
+            stat_failedFrees.increment();
+            return 0;
+        }
+        return free(array);
+    } /* FREE ARRAY FUNCTION END */
+
+    /* ===== SCOPE MEMBERS ===== */
+    private final ThreadLocal<MemScope> scopes = new ThreadLocal<>();
+    private volatile int info_scopeCount = 0; /* open scopes */
+
+    /* ===== SCOPE FUNCTION ===== */
+    /* opens a scope on the calling thread, nested in any scope */
+    /* already open. all objects allocated on this thread until */
+    /* the scope is closed are freed when it closes */
+    public MemScope scope()
+    {
+        MemScope scope = new MemScope(this, scopes.get());
+        scopes.set(scope);
+        lock.lock();
+        try { info_scopeCount++; }
+        finally { lock.unlock(); }
+        return scope;
+    } /* SCOPE FUNCTION END */
+
+    /* ===== CLOSE SCOPE FUNCTION ===== */
+    /* closes scope, and first any scopes still open inside it */
+    void closeScope(MemScope scope)
+    {
+        if (scope.info_closed) return;
+        if (scope.owner != Thread.currentThread())
+        {
+            System.err.printf("COULD NOT CLOSE SCOPE: Wrong thread\n");
+            return;
+        }
+
+        lock.lock();
+        try
+        {
+            /* unwind from innermost scope out to this one */
+            MemScope current = scopes.get();
+            while (current != null && !scope.info_closed)
+            {
+                trace(MemTrace.SCOPECLOSE, -1, current.info_count, -1);
+                freeHandles(current.buffer_handles, current.info_count);
+                current.info_count = 0;
+                current.info_closed = true;
+                info_scopeCount--;
+                current = current.parent;
+            }
+            scopes.set(current);
+        }
+        finally { lock.unlock(); }
+    } /* CLOSE SCOPE FUNCTION END */
+
+    /* ===== FLUSH MAGAZINE FUNCTION ===== */
+    /* returns all instances held by the calling thread's magazine */
+    /* to the pages. call before a worker thread exits, or before */
+    /* turning concurrent mode off */
+    public void flushMagazine()
+    {
+        Magazine magazine = magazines.get();
+        for (int i = 0; i < magazine.info_typeCount; i++)
+        {
+            magazine.flush(i, MAGAZINESIZE);
+        }
+
+        /* lent instances stay in the lend table, so once the */
+        /* magazine is dropped they are freed through the shared path */
+        lock.lock();
+        try { buffer_magazines.remove(magazine.ref); }
+        finally { lock.unlock(); }
+        magazines.remove();
+    } /* FLUSH MAGAZINE FUNCTION END */
+
+    /* ===== FLUSH DEPOTS FUNCTION ===== */
+    /* returns all instances held by the shared depots to the */
+    /* pages. call before turning lockfree mode off, or concurrent */
+    /* mode once virtual threads used it */
+    public void flushDepots()
+    {
+        lock.lock();
+        try
+        {
+            for (Depot depot : buffer_depots)
+            {
+                depot.drain(DEPOTSIZE);
+            }
+
+            /* lent instances stay in the lend table, and are freed */
+            /* through the shared path once lockfree mode is off */
+        }
+        finally { lock.unlock(); }
+    } /* FLUSH DEPOTS FUNCTION END */
+
+    /* ===== CLOSE FUNCTION ===== */
+    /* stops the trimmer and lets go of every page, instance, */
+    /* registered factory and limit, so the pool holds nothing. */
+    /* objects handed out before stay usable but can no longer be */
+    /* freed to it. the pool can be used again afterwards, empty */
+    public void close()
+    {
+        stopTrimmer();
+
+        lock.lock();
+        try
+        {
+            buffer_pages = new Page[PAGECOUNT];
+            info_pageCount = 0;
+            info_pageHint = 0;
+            info_pageTop = 0;
+            buffer_openPages = new Page[DIRECTORYSIZE];
+            info_openCount = 0;
+            buffer_candidates = new Page[DIRECTORYSIZE];
+            info_candidateCount = 0;
+            slotIndex = new SlotIndex(INDEXSIZE);
+            buffer_types.clear();
+            buffer_arrayTypes.clear();
+
+            /* magazines and depots of other threads may still hold */
+            /* instances of the dropped pages, so start over fresh */
+            magazines = ThreadLocal.withInitial(Magazine::new);
+            buffer_magazines = new HashSet<>();
+            magazineQueue = new ReferenceQueue<>();
+            depots.clear();
+            buffer_depots.clear();
+            buffer_lent = null;
+            lentOverflow = new SlotIndex(LENTOVERFLOW);
+
+            /* references of the dropped pages may still be queued */
+            buffer_leaks = null;
+            info_tracked = 0;
+            leakQueue = new ReferenceQueue<>();
+        }
+        finally { lock.unlock(); }
+    } /* CLOSE FUNCTION END */
+
+    /* ===== STATS FUNCTION ===== */
+    /* returns a snapshot of all counters. never takes the lock, */
+    /* so counters read while others update may be off by a few */
+    public MemStats stats()
+    {
+        return new MemStats(stat_allocs.sum(), stat_frees.sum(),
+            stat_failedFrees.sum(), stat_magazineAllocs.sum(),
+            stat_magazineFrees.sum(), stat_constructs.sum(),
+            stat_currentHits.sum(), stat_slowAllocs.sum(),
+            stat_scanSteps.sum(), stat_pagesCreated.sum(),
+            stat_pagesCleaned.sum(), stat_pressureTrims.sum(),
+            stat_evictions.sum(), stat_leaks.sum(),
+            stat_leaksReclaimed.sum(),
+            info_pageCount, slotIndex.info_size);
+    } /* STATS FUNCTION END */
+
+    /* ===== STATS BEAN CLASS ===== */
+    /* live JMX view, each attribute reads it's counter directly */
+    private final class StatsBean implements MemStatsMXBean
+    {
+        public long getAllocs() { return stat_allocs.sum(); }
+        public long getFrees() { return stat_frees.sum(); }
+        public long getFailedFrees() { return stat_failedFrees.sum(); }
+        public long getMagazineAllocs() { return stat_magazineAllocs.sum(); }
+        public long getMagazineFrees() { return stat_magazineFrees.sum(); }
+        public long getConstructs() { return stat_constructs.sum(); }
+        public long getCurrentHits() { return stat_currentHits.sum(); }
+        public long getSlowAllocs() { return stat_slowAllocs.sum(); }
+        public double getAverageScan() { return stats().getAverageScan(); }
+        public long getPagesCreated() { return stat_pagesCreated.sum(); }
+        public long getPagesCleaned() { return stat_pagesCleaned.sum(); }
+        public long getPressureTrims() { return stat_pressureTrims.sum(); }
+        public long getEvictions() { return stat_evictions.sum(); }
+        public long getLeaks() { return stat_leaks.sum(); }
+        public long getLeaksReclaimed() { return stat_leaksReclaimed.sum(); }
+        public int getPageCount() { return info_pageCount; }
+        public int getIndexSize() { return slotIndex.info_size; }
+    } /* STATS BEAN CLASS BLOCK END */
+
+    /* ===== REGISTER MBEAN FUNCTION ===== */
+    /* exposes the counters through JMX as "Mem:type=Stats", or */
+    /* "Mem:type=Stats,pool=<name>" for a named pool. returns 1 on */
+    /* sucess, 0 on failure */
+    public int registerMBean()
+    {
+        try
+        {
+            ObjectName name = new ObjectName(info_name == null
+                ? "Mem:type=Stats"
+                : "Mem:type=Stats,pool=" + ObjectName.quote(info_name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name))
+            {
+                server.registerMBean(new StatsBean(), name);
+            }
+            return 1;
+        }
+        catch (Exception exception)
+        {
+            System.err.printf("COULD NOT REGISTER MBEAN\n");
+            return 0;
+        }
+    } /* REGISTER MBEAN FUNCTION END */
+
+    /* ===== DUMP FUNCTION ===== */
+    public void dump()
+    {
+        lock.lock();
+        try
+        {
+            /* loop through all pages */
+            for (int i = 0; i < buffer_pages.length; i++)
+            {
+                if (buffer_pages[i] == null) continue;
+                System.out.printf("=====DUMPING PAGE: <%d>=====\n", i);
+                buffer_pages[i].bufferDump();
+            }
+        }
+        finally { lock.unlock(); }
+    }
+
+    /* ===== PAGEDUMP FUNCTION ===== */
+    public void pageDump(int page)
+    {
+        lock.lock();
+        try
+        {
+            if (buffer_pages[page] == null)
+            {
+                System.err.printf("Could not dump page: Page does not exist!\n");
+                return;
+            }
+            buffer_pages[page].bufferDump();
+        }
+        finally { lock.unlock(); }
+    } /* PAGEDUMP FUNCTION END */
+
+    /* ===== PAGESPEC FUNCTION ===== */
+    public void pageSpec()
+    {
+        lock.lock();
+        try
+        {
+            System.out.printf("PAGE SPECIFICATIONS:\n");
+            for (int i = 0; i < buffer_pages.length; i++)
+            {
+                if (buffer_pages[i] == null) continue;
+                System.out.printf("\tPage[%d]\n", i);
+                System.out.printf("\t\tBufferuse: %03d\n",
+                    buffer_pages[i].info_bufferuse);
+                System.out.printf("\t\tDiversity: %03d\n",
+                    buffer_pages[i].info_diversity);
+            }
+        }
+        finally { lock.unlock(); }
+    }
+
+    /* ===== INDEXDUMP FUNCTION ===== */
+    public void indexDump()
+    {
+        lock.lock();
+        try
+        {
+            System.out.printf("DUMPING SLOT INDEX\n");
+            System.out.printf("\tEntries: %d\n", slotIndex.info_size);
+            System.out.printf("\tCapacity: %d\n", slotIndex.buffer_keys.length);
+
+            for (int i = 0; i < slotIndex.buffer_keys.length; i++)
+            {
+                if (slotIndex.buffer_keys[i] == null) continue;
+                long value = slotIndex.buffer_values[i];
+                System.out.printf("Index: [%d]\n", i);
+                System.out.printf("\tPage: %d\n", indexPage(value));
+                System.out.printf("\tSlot: %d\n", indexSlot(value));
+            }
+        }
+        finally { lock.unlock(); }
+    } /* INDEXDUMP FUNCTION END */
+ } /* END CLASS BLOCK */
\ No newline at end of file
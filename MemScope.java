@@ -0,0 +1,75 @@
+/* <MemScope.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  A scope of allocations made through a MemPool, or the Mem class.
+ *  Every object allocated from the pool on a thread while one of the
+ *  pool's scopes is open is recorded by the innermost scope, and goes
+ *  back to the pool when that scope is closed, in one bulk pass per
+ *  page. Meant to be used with
+ *  try-with-resources:
+ * 
+ *      try (MemScope s = Mem.scope())
+ *      {
+ *          Vect v = (Vect)Mem.alloc(Vect.class);
+ *      }
+ * 
+ *  Scopes nest. Closing a scope also closes any scopes still open
+ *  inside of it. A scope must be closed by the thread that opened it.
+ * 
+ * CONTENTS:
+ *  - Class block
+ *  - Private class macros
+ *  - Info members
+ *  - Buffer members
+ *  - Constructor
+ *  - Record function
+ *  - Close function
+ */
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemScope implements AutoCloseable
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int LOGSIZE = 0x40;
+
+    /* ===== INFO MEMBERS ===== */
+    final MemPool pool; /* pool the scope records allocations of */
+    final MemScope parent; /* enclosing scope, null if outermost */
+    final Thread owner; /* thread that opened scope */
+    int info_count = 0;
+    boolean info_closed = false;
+
+    /* ===== BUFFER MEMBERS ===== */
+    long[] buffer_handles; /* handles of all scoped allocations */
+
+    /* ===== CONSTRUCTOR ===== */
+    MemScope(MemPool pool, MemScope parent)
+    {
+        this.pool = pool;
+        this.parent = parent;
+        this.owner = Thread.currentThread();
+        buffer_handles = new long[LOGSIZE];
+    } /* CTOR END */
+
+    /* ===== RECORD FUNCTION ===== */
+    void record(long handle)
+    {
+        if (info_count == buffer_handles.length)
+        {
+            buffer_handles = java.util.Arrays.copyOf(buffer_handles,
+                info_count * 2);
+        }
+        buffer_handles[info_count++] = handle;
+    } /* RECORD FUNCTION END */
+
+    /* ===== CLOSE FUNCTION ===== */
+    /* frees every object allocated in this scope that was not */
+    /* already freed */
+    @Override
+    public void close()
+    {
+        pool.closeScope(this);
+    } /* CLOSE FUNCTION END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,112 @@
+/* <MemStats.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Snapshot of the Mem counters, taken by Mem.stats(). Counters only
+ *  ever grow, so the difference of two snapshots gives the activity
+ *  between them.
+ * 
+ * CONTENTS:
+ *  - Class block
+ *  - Counter members
+ *  - Gauge members
+ *  - Constructor
+ *  - Getter functions
+ *  - Tostring function
+ */
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemStats implements MemStatsMXBean
+ {
+    /* ===== COUNTER MEMBERS ===== */
+    public final long allocs; /* slots taken from pages */
+    public final long frees; /* slots released to pages */
+    public final long failedFrees; /* unknown, stale or double frees */
+    public final long magazineAllocs; /* allocs served by a magazine */
+    public final long magazineFrees; /* frees taken by a magazine */
+    public final long constructs; /* instances built by a factory */
+    public final long currentHits; /* allocs served by current page */
+    public final long slowAllocs; /* allocs that searched directories */
+    public final long scanSteps; /* pages probed by slow allocs */
+    public final long pagesCreated;
+    public final long pagesCleaned;
+    public final long pressureTrims; /* trims forced by heap pressure */
+    public final long evictions; /* free instances let go by limits */
+    public final long leaks; /* tracked objects never freed */
+    public final long leaksReclaimed; /* their slots given back */
+
+    /* ===== GAUGE MEMBERS ===== */
+    public final int pageCount; /* live pages */
+    public final int indexSize; /* pooled instances */
+
+    /* ===== CONSTRUCTOR ===== */
+    MemStats(long allocs, long frees, long failedFrees,
+        long magazineAllocs, long magazineFrees, long constructs,
+        long currentHits, long slowAllocs, long scanSteps,
+        long pagesCreated, long pagesCleaned, long pressureTrims,
+        long evictions, long leaks, long leaksReclaimed,
+        int pageCount, int indexSize)
+    {
+        this.allocs = allocs;
+        this.frees = frees;
+        this.failedFrees = failedFrees;
+        this.magazineAllocs = magazineAllocs;
+        this.magazineFrees = magazineFrees;
+        this.constructs = constructs;
+        this.currentHits = currentHits;
+        this.slowAllocs = slowAllocs;
+        this.scanSteps = scanSteps;
+        this.pagesCreated = pagesCreated;
+        this.pagesCleaned = pagesCleaned;
+        this.pressureTrims = pressureTrims;
+        this.evictions = evictions;
+        this.leaks = leaks;
+        this.leaksReclaimed = leaksReclaimed;
+        this.pageCount = pageCount;
+        this.indexSize = indexSize;
+    } /* CTOR END */
+
+    /* ===== GETTER FUNCTIONS ===== */
+    public long getAllocs() { return allocs; }
+    public long getFrees() { return frees; }
+    public long getFailedFrees() { return failedFrees; }
+    public long getMagazineAllocs() { return magazineAllocs; }
+    public long getMagazineFrees() { return magazineFrees; }
+    public long getConstructs() { return constructs; }
+    public long getCurrentHits() { return currentHits; }
+    public long getSlowAllocs() { return slowAllocs; }
+    public long getPagesCreated() { return pagesCreated; }
+    public long getPagesCleaned() { return pagesCleaned; }
+    public long getPressureTrims() { return pressureTrims; }
+    public long getEvictions() { return evictions; }
+    public long getLeaks() { return leaks; }
+    public long getLeaksReclaimed() { return leaksReclaimed; }
+    public int getPageCount() { return pageCount; }
+    public int getIndexSize() { return indexSize; }
+
+    /* average pages probed by an alloc that missed it's current page */
+    public double getAverageScan()
+    {
+        return slowAllocs == 0 ? 0 : (double)scanSteps / slowAllocs;
+    }
+
+    /* ===== TOSTRING FUNCTION ===== */
+    @Override
+    public String toString()
+    {
+        return String.format("MEM STATS:\n" +
+            "\tAllocs: %d\n\tFrees: %d\n\tFailed frees: %d\n" +
+            "\tMagazine allocs: %d\n\tMagazine frees: %d\n" +
+            "\tConstructs: %d\n\tCurrent page hits: %d\n" +
+            "\tSlow allocs: %d\n\tAverage scan: %.2f\n" +
+            "\tPages created: %d\n\tPages cleaned: %d\n" +
+            "\tPressure trims: %d\n\tEvictions: %d\n" +
+            "\tLeaks: %d\n\tLeaks reclaimed: %d\n" +
+            "\tPage count: %d\n\tIndex size: %d\n",
+            allocs, frees, failedFrees, magazineAllocs, magazineFrees,
+            constructs, currentHits, slowAllocs, getAverageScan(),
+            pagesCreated, pagesCleaned, pressureTrims, evictions, leaks,
+            leaksReclaimed, pageCount, indexSize);
+    } /* TOSTRING FUNCTION END */
+ } /* END CLASS BLOCK */
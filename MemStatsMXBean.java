@@ -0,0 +1,31 @@
+/* <MemStatsMXBean.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  JMX view of the Mem counters, registered by Mem.registerMBean()
+ *  under the name "Mem:type=Stats". Every attribute reads the live
+ *  counter, see MemStats for what each one counts.
+ */
+
+ /* ===== INTERFACE BLOCK ===== */
+ public interface MemStatsMXBean
+ {
+    long getAllocs();
+    long getFrees();
+    long getFailedFrees();
+    long getMagazineAllocs();
+    long getMagazineFrees();
+    long getConstructs();
+    long getCurrentHits();
+    long getSlowAllocs();
+    double getAverageScan();
+    long getPagesCreated();
+    long getPagesCleaned();
+    long getPressureTrims();
+    long getEvictions();
+    long getLeaks();
+    long getLeaksReclaimed();
+    int getPageCount();
+    int getIndexSize();
+ } /* END INTERFACE BLOCK */
@@ -0,0 +1,356 @@
+/* <MemTrace.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Binary event trace of the Mem class. Events are fixed size records
+ *  of type, page, slot, class id and timestamp, written into a ring
+ *  buffer allocated once when tracing starts. A daemon writer thread
+ *  drains the ring to a file, so tracing never blocks or allocates on
+ *  the alloc/free paths and can be left on under load. If the writer
+ *  falls a full ring behind, the overwritten events are counted as
+ *  lost instead of stalling the pool.
+ * 
+ *  Trace files are turned into text with the decoder:
+ * 
+ *      java MemTrace mem.trace
+ * 
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Event type macros
+ *  - Private class macros
+ *  - Ring members
+ *  - Writer members
+ *  - Start function
+ *  - Stop function
+ *  - Record function
+ *  - Define class function
+ *  - Drain function
+ *  - Decode function
+ *  - Main function
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.io.*;
+ import java.util.*;
+ import java.util.concurrent.atomic.*;
+ import java.util.concurrent.locks.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public final class MemTrace
+ {
+    /* ===== EVENT TYPE MACROS ===== */
+    static final int ALLOC = 1; /* slot taken from page */
+    static final int CONSTRUCT = 2; /* instance built into slot */
+    static final int FREE = 3; /* slot released to page */
+    static final int FREEFAIL = 4; /* unknown, stale or double free */
+    static final int INITFAIL = 5; /* factory threw or gave null */
+    static final int DIVCREATE = 6; /* class added to page, slot = div */
+    static final int DIVFAIL = 7; /* page diversity exhausted */
+    static final int PAGECREATE = 8; /* slot = page size */
+    static final int PAGEGROW = 9; /* slot = new page buffer size */
+    static final int PAGECLEAN = 10;
+    static final int PRESSURE = 11; /* slot = pages dropped */
+    static final int MAGREFILL = 12; /* slot = instances taken */
+    static final int MAGFLUSH = 13; /* slot = instances returned */
+    static final int BULKFREE = 14; /* slot = instances freed */
+    static final int SCOPECLOSE = 15; /* slot = scoped allocations */
+    static final int COMPACT = 16; /* slot = free instances moved */
+    static final int EVICT = 17; /* slot = free instances let go */
+    static final int RESERVE = 18; /* slot = free instances built */
+    static final int LEAK = 19; /* tracked instance never freed */
+    private static final String[] NAMES = { "?", "ALLOC", "CONSTRUCT",
+        "FREE", "FREEFAIL", "INITFAIL", "DIVCREATE", "DIVFAIL",
+        "PAGECREATE", "PAGEGROW", "PAGECLEAN", "PRESSURE", "MAGREFILL",
+        "MAGFLUSH", "BULKFREE", "SCOPECLOSE", "COMPACT", "EVICT",
+        "RESERVE", "LEAK" };
+
+    /* ===== CLASS MACROS ===== */
+    private static final int MAGIC = 0x4D454D54; /* "MEMT" */
+    private static final int VERSION = 1;
+    private static final int RINGSIZE = 0x10000; /* events */
+    private static final int EVENTWORDS = 4;
+    private static final long DRAINNANOS = 5000000L;
+    private static final byte TAGEVENT = 'E';
+    private static final byte TAGCLASS = 'C';
+    private static final byte TAGLOST = 'L';
+
+    /* ===== RING MEMBERS ===== */
+    /* each event takes four words: published sequence + 1 (0 */
+    /* while being written), timestamp, type and class id, page */
+    /* and slot */
+    static volatile boolean enabled = false;
+    private static AtomicLongArray buffer_ring;
+    private static int info_mask;
+    private static final AtomicLong info_sequence = new AtomicLong();
+
+    /* ===== WRITER MEMBERS ===== */
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final ArrayList<String> buffer_classes = new ArrayList<>();
+    private static int info_classesWritten = 0;
+    private static long info_readSequence = 0;
+    private static long info_lost = 0;
+    private static DataOutputStream writer_out;
+    private static Thread writer_thread;
+    private static volatile boolean writer_stop = false;
+
+    /* ===== START FUNCTION ===== */
+    /* starts tracing to a file. returns 1 on sucess, 0 on failure */
+    public static int start(String path)
+    {
+        return start(path, RINGSIZE);
+    }
+
+    /* capacity is rounded up to a power of two events */
+    public static int start(String path, int capacity)
+    {
+        lock.lock();
+        try
+        {
+            if (enabled)
+            {
+                System.err.printf("COULD NOT START TRACE: Already on\n");
+                return 0;
+            }
+
+            try
+            {
+                writer_out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(path), 1 << 16));
+                writer_out.writeInt(MAGIC);
+                writer_out.writeInt(VERSION);
+                writer_out.writeLong(System.nanoTime());
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("COULD NOT START TRACE: %s\n",
+                    exception.getMessage());
+                return 0;
+            }
+
+            int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+            buffer_ring = new AtomicLongArray(size * EVENTWORDS);
+            info_mask = size - 1;
+            info_sequence.set(0);
+            info_readSequence = 0;
+            info_lost = 0;
+            info_classesWritten = 0;
+            writer_stop = false;
+
+            writer_thread = new Thread(MemTrace::writerLoop, "MemTrace writer");
+            writer_thread.setDaemon(true);
+            writer_thread.start();
+            enabled = true;
+            return 1;
+        }
+        finally { lock.unlock(); }
+    } /* START FUNCTION END */
+
+    /* ===== STOP FUNCTION ===== */
+    /* stops tracing, drains what is left and closes the file */
+    public static void stop()
+    {
+        Thread thread;
+        lock.lock();
+        try
+        {
+            if (!enabled) return;
+            enabled = false;
+            writer_stop = true;
+            thread = writer_thread;
+        }
+        finally { lock.unlock(); }
+
+        try { thread.join(); }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+    } /* STOP FUNCTION END */
+
+    /* ===== RECORD FUNCTION ===== */
+    /* called by Mem only while enabled */
+    static void record(int type, int page, int slot, int classId)
+    {
+        AtomicLongArray ring = buffer_ring;
+        long seq = info_sequence.getAndIncrement();
+        int base = (int)(seq & info_mask) * EVENTWORDS;
+        ring.set(base, 0);
+        ring.set(base + 1, System.nanoTime());
+        ring.set(base + 2, ((long)type << 32) | (classId & 0xFFFFFFFFL));
+        ring.set(base + 3, ((long)page << 32) | (slot & 0xFFFFFFFFL));
+        ring.lazySet(base, seq + 1);
+    } /* RECORD FUNCTION END */
+
+    /* ===== DEFINE CLASS FUNCTION ===== */
+    /* names a class id. ids are handed out in order from 0 */
+    static void defineClass(int id, String name)
+    {
+        lock.lock();
+        try
+        {
+            while (buffer_classes.size() <= id) buffer_classes.add(null);
+            buffer_classes.set(id, name);
+        }
+        finally { lock.unlock(); }
+    } /* DEFINE CLASS FUNCTION END */
+
+    /* ===== WRITER LOOP FUNCTION ===== */
+    private static void writerLoop()
+    {
+        try
+        {
+            while (!writer_stop)
+            {
+                drain();
+                writer_out.flush();
+                LockSupport.parkNanos(DRAINNANOS);
+            }
+            drain();
+            writer_out.close();
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("TRACE WRITE FAILED: %s\n",
+                exception.getMessage());
+            enabled = false;
+        }
+    } /* WRITER LOOP FUNCTION END */
+
+    /* ===== DRAIN FUNCTION ===== */
+    /* writes new class names, then every published event */
+    private static void drain() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            for (; info_classesWritten < buffer_classes.size();
+                info_classesWritten++)
+            {
+                String name = buffer_classes.get(info_classesWritten);
+                writer_out.writeByte(TAGCLASS);
+                writer_out.writeInt(info_classesWritten);
+                writer_out.writeUTF(name == null ? "?" : name);
+            }
+        }
+        finally { lock.unlock(); }
+
+        AtomicLongArray ring = buffer_ring;
+        long head = info_sequence.get();
+        long lost = 0;
+
+        /* on overrun, skip to the oldest event still in the ring */
+        if (head - info_readSequence > info_mask + 1)
+        {
+            lost += head - (info_mask + 1) - info_readSequence;
+            info_readSequence = head - (info_mask + 1);
+        }
+
+        for (; info_readSequence < head; info_readSequence++)
+        {
+            long seq = info_readSequence;
+            int base = (int)(seq & info_mask) * EVENTWORDS;
+            long mark = ring.get(base);
+
+            /* not yet published, pick it up on the next drain */
+            if (mark != 0 && mark < seq + 1) break;
+            if (mark == 0)
+            {
+                if (enabled) break;
+                lost++;
+                continue;
+            }
+
+            long time = ring.get(base + 1);
+            long typeClass = ring.get(base + 2);
+            long pageSlot = ring.get(base + 3);
+
+            /* overwritten by a later lap, during or before reading */
+            if (mark != seq + 1 || ring.get(base) != mark)
+            {
+                lost++;
+                continue;
+            }
+
+            writer_out.writeByte(TAGEVENT);
+            writer_out.writeLong(time);
+            writer_out.writeInt((int)(typeClass >>> 32));
+            writer_out.writeInt((int)typeClass);
+            writer_out.writeInt((int)(pageSlot >>> 32));
+            writer_out.writeInt((int)pageSlot);
+        } /* EVENT LOOP END */
+
+        if (lost > 0)
+        {
+            info_lost += lost;
+            writer_out.writeByte(TAGLOST);
+            writer_out.writeLong(lost);
+        }
+    } /* DRAIN FUNCTION END */
+
+    /* ===== DECODE FUNCTION ===== */
+    /* prints a trace file as one line of text per event */
+    public static void decode(InputStream in, PrintStream out)
+        throws IOException
+    {
+        DataInputStream data = new DataInputStream(
+            new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+        {
+            throw new IOException("Not a Mem trace file");
+        }
+        long start = data.readLong();
+        ArrayList<String> classes = new ArrayList<>();
+
+        while (true)
+        {
+            int tag = data.read();
+            if (tag == -1) break;
+
+            if (tag == TAGCLASS)
+            {
+                int id = data.readInt();
+                String name = data.readUTF();
+                while (classes.size() <= id) classes.add("?");
+                classes.set(id, name);
+            }
+            else if (tag == TAGLOST)
+            {
+                out.printf("LOST %d events\n", data.readLong());
+            }
+            else if (tag == TAGEVENT)
+            {
+                long time = data.readLong() - start;
+                int type = data.readInt();
+                int classId = data.readInt();
+                int page = data.readInt();
+                int slot = data.readInt();
+                out.printf("%d.%03dus %-10s page=%d slot=%d class=%s\n",
+                    time / 1000, time % 1000,
+                    type > 0 && type < NAMES.length ? NAMES[type] : "?",
+                    page, slot,
+                    classId >= 0 && classId < classes.size() ?
+                        classes.get(classId) : "-");
+            }
+            else
+            {
+                throw new IOException("Corrupt trace file");
+            }
+        } /* RECORD LOOP END */
+    } /* DECODE FUNCTION END */
+
+    /* ===== MAIN FUNCTION ===== */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.printf("usage: java MemTrace <trace file>\n");
+            return;
+        }
+        try (InputStream in = new FileInputStream(args[0]))
+        {
+            decode(in, System.out);
+        }
+    } /* MAIN FUNCTION END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,196 @@
+/* <PlacementPolicy.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Decides which page of a MemPool an allocation lands on, once the
+ *  page the class last allocated from can't serve it. A pool uses
+ *  it's own free instance and open page directories when it has no
+ *  policy, which is cheapest to run but leaves no say over where
+ *  objects end up. A policy trades a scan over the pages for
+ *  control over fragmentation, page count and locality:
+ *
+ *      MemPool pool = new MemPool("particles");
+ *      pool.placement_policy = PlacementPolicy.bestLocality();
+ *
+ *  The policy also places free instances that were not freed
+ *  where they sit: those built by reserve, and those compaction
+ *  moves out of sparse pages. These are placed with reuse unset.
+ *  When moving, the view only shows pages in use that are neither
+ *  sparse nor draining. If the policy picks no page, reserve
+ *  creates one, compaction leaves the instance where it is, and an
+ *  instance freed on a draining page is let go.
+ *
+ *  Policies see the pool through a read-only Pages view and are
+ *  called with the pool's lock held, so they need no locking of
+ *  their own. A policy keeps state per pool, so every pool needs
+ *  it's own policy instance.
+ *
+ * CONTENTS:
+ *  - Class block
+ *  - Pages view
+ *  - Place function
+ *  - Factory functions
+ *  - First fit policy
+ *  - Next fit policy
+ *  - Type segregated policy
+ *  - Best locality policy
+ */
+
+ /* ===== CLASS BLOCK ===== */
+ public interface PlacementPolicy
+ {
+    /* ===== PAGES VIEW ===== */
+    /* pages are numbered 0 to pageCount() - 1, with gaps where */
+    /* pages were dropped. classes are numbered by their trace id */
+    interface Pages
+    {
+        int pageCount();
+
+        /* true if page exists. every call counts as a scan step */
+        boolean exists(int page);
+
+        int size(int page); /* slots */
+        int used(int page); /* live slots */
+        int classes(int page); /* classes sharing the page */
+
+        /* true if page holds free instances of class */
+        boolean hasFree(int page, int classId);
+
+        /* true if a new instance of class could be built into page */
+        boolean canBuild(int page, int classId);
+
+        /* true if class already has slots on page */
+        boolean hosts(int page, int classId);
+    } /* PAGES VIEW END */
+
+    /* ===== PLACE FUNCTION ===== */
+    /* returns the page to alloc an instance of class from, or -1 */
+    /* for a new page. reuse is set while the class has free */
+    /* instances anywhere, so a page holding one should win over */
+    /* building a new instance. -1 with reuse set leaves the pool */
+    /* to reuse one wherever it sits, and only when it has none */
+    /* is the policy asked again without reuse */
+    int place(Pages pages, int classId, boolean reuse);
+
+    /* ===== FACTORY FUNCTIONS ===== */
+    static PlacementPolicy firstFit() { return new FirstFit(); }
+    static PlacementPolicy nextFit() { return new NextFit(); }
+    static PlacementPolicy typeSegregated() { return new TypeSegregated(); }
+    static PlacementPolicy bestLocality() { return new BestLocality(); }
+
+    /* ===== FIRST FIT POLICY ===== */
+    /* lowest numbered page that fits. packs objects into the low */
+    /* pages so high ones empty out and get trimmed, at the cost */
+    /* of scanning from page 0 on every placement */
+    final class FirstFit implements PlacementPolicy
+    {
+        public int place(Pages pages, int classId, boolean reuse)
+        {
+            for (int p = 0; p < pages.pageCount(); p++)
+            {
+                if (!pages.exists(p)) continue;
+                if (reuse ? pages.hasFree(p, classId)
+                          : pages.canBuild(p, classId)) return p;
+            }
+            return -1;
+        }
+    } /* FIRST FIT POLICY END */
+
+    /* ===== NEXT FIT POLICY ===== */
+    /* first fit, but resumes from the page that fit last time and */
+    /* wraps around. scans stay short, objects spread over pages */
+    final class NextFit implements PlacementPolicy
+    {
+        private int info_last = 0;
+
+        public int place(Pages pages, int classId, boolean reuse)
+        {
+            int count = pages.pageCount();
+            for (int i = 0; i < count; i++)
+            {
+                int p = (info_last + i) % count;
+                if (!pages.exists(p)) continue;
+                if (reuse ? pages.hasFree(p, classId)
+                          : pages.canBuild(p, classId))
+                {
+                    info_last = p;
+                    return p;
+                }
+            }
+            return -1;
+        }
+    } /* NEXT FIT POLICY END */
+
+    /* ===== TYPE SEGREGATED POLICY ===== */
+    /* every page holds a single class, so instances of a class sit */
+    /* next to each other and classes never compete for a page's */
+    /* diversity. remembers the last page of each class */
+    final class TypeSegregated implements PlacementPolicy
+    {
+        private int[] buffer_last = new int[0x10]; /* page + 1, by class */
+
+        public int place(Pages pages, int classId, boolean reuse)
+        {
+            if (classId >= buffer_last.length)
+            {
+                buffer_last = java.util.Arrays.copyOf(buffer_last,
+                    Math.max(classId + 1, buffer_last.length * 2));
+            }
+
+            int last = buffer_last[classId] - 1;
+            if (last >= 0 && last < pages.pageCount() && fits(pages, last,
+                classId, reuse)) return last;
+
+            for (int p = 0; p < pages.pageCount(); p++)
+            {
+                if (p == last || !fits(pages, p, classId, reuse)) continue;
+                buffer_last[classId] = p + 1;
+                return p;
+            }
+            return -1;
+        }
+
+        /* the page is the class's own, or still holds no class */
+        private boolean fits(Pages pages, int p, int classId,
+            boolean reuse)
+        {
+            if (!pages.exists(p)) return false;
+            if (pages.classes(p) == 0) return !reuse &&
+                pages.canBuild(p, classId);
+            if (pages.classes(p) != 1 || !pages.hosts(p, classId))
+                return false;
+            return reuse ? pages.hasFree(p, classId)
+                         : pages.canBuild(p, classId);
+        }
+    } /* TYPE SEGREGATED POLICY END */
+
+    /* ===== BEST LOCALITY POLICY ===== */
+    /* the fullest page that fits, preferring pages that already */
+    /* hold the class. live objects pack into few dense pages, near */
+    /* others of their class, and sparse pages drain for the */
+    /* trimmer. scans every page on each placement */
+    final class BestLocality implements PlacementPolicy
+    {
+        public int place(Pages pages, int classId, boolean reuse)
+        {
+            int best = -1;
+            long bestScore = -1;
+            for (int p = 0; p < pages.pageCount(); p++)
+            {
+                if (!pages.exists(p)) continue;
+                if (!(reuse ? pages.hasFree(p, classId)
+                            : pages.canBuild(p, classId))) continue;
+
+                long score = pages.used(p);
+                if (pages.hosts(p, classId)) score += pages.size(p);
+                if (score > bestScore)
+                {
+                    best = p;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    } /* BEST LOCALITY POLICY END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,45 @@
+/* <ArrayBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Scratch array churn: one float[] of length elements is taken,
+ *  written and released per operation, as in a loop that needs a
+ *  temporary buffer. Compares Mem.allocArray/freeArray against plain
+ *  new float[] left to the GC.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayBenchmark
+{
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    @Benchmark
+    public float pool()
+    {
+        float[] scratch = (float[])MemApi.allocArray(float.class, length);
+        scratch[length - 1] = length;
+        float result = scratch[length - 1];
+        MemApi.freeArray(scratch);
+        return result;
+    }
+
+    @Benchmark
+    public float plainNew()
+    {
+        float[] scratch = new float[length];
+        scratch[length - 1] = length;
+        return scratch[length - 1];
+    }
+}
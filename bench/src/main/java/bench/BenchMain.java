@@ -0,0 +1,41 @@
+/* <BenchMain.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Entry point of the benchmark jar. Takes the usual JMH command line
+ *  and attaches the GC profiler when no profiler is given, so every
+ *  run reports allocation rate and GC counts next to the timings.
+ */
+
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public final class BenchMain
+{
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+
+        /* help and listings are handled by the stock runner */
+        if (cmd.shouldHelp() || cmd.shouldList() ||
+            cmd.shouldListWithParams() || cmd.shouldListProfilers() ||
+            cmd.shouldListResultFormats())
+        {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (cmd.getProfilers().isEmpty())
+        {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+/* <ChurnBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Steady state churn: one object is allocated and released per
+ *  operation while livePages worth of long lived objects stay in the
+ *  pool. Compares Mem.alloc/free and the handle API against plain new
+ *  left to the GC.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmark
+{
+    /* pages of 0x200 slots kept full of live objects */
+    @Param({"1", "16", "256"})
+    public int livePages;
+
+    private Object[] live;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        live = new Object[livePages * 0x200];
+        for (int i = 0; i < live.length; i++)
+        {
+            live[i] = MemApi.alloc(MemApi.VECT);
+        }
+    }
+
+    @Benchmark
+    public Object pool()
+    {
+        Object obj = MemApi.alloc(MemApi.VECT);
+        MemApi.free(obj);
+        return obj;
+    }
+
+    @Benchmark
+    public long poolHandle()
+    {
+        long handle = MemApi.allocHandle(MemApi.VECT);
+        MemApi.freeHandle(handle);
+        return handle;
+    }
+
+    @Benchmark
+    public Object plainNew()
+    {
+        return MemApi.newVect();
+    }
+}
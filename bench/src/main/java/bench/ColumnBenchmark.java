@@ -0,0 +1,68 @@
+/* <ColumnBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  One frame of x += y * dt over count live Vects. pooledObjects
+ *  walks Vects handed out by Mem.alloc, columns runs the same update
+ *  as a MemColumns bulk operation over packed float[] columns, with
+ *  and without the Vector API kernels.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ColumnBenchmark
+{
+    private static final float DT = 0.016f;
+
+    @Param({"4096", "1048576"})
+    public int count;
+
+    @Param({"true", "false"})
+    public boolean simd;
+
+    private Object[] objects;
+    private Object columns;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        objects = new Object[count];
+        MemApi.allocBatch(MemApi.VECT, count, objects);
+        columns = MemApi.newColumns(MemApi.VECT, count);
+        for (int i = 0; i < count; i++)
+        {
+            MemApi.columnsAlloc(columns);
+        }
+        MemApi.simdMode(simd);
+    }
+
+    @Benchmark
+    public Object pooledObjects()
+    {
+        Object[] objs = objects;
+        for (int i = 0; i < objs.length; i++)
+        {
+            Object v = objs[i];
+            float x = (float)MemApi.VECTX.get(v);
+            float y = (float)MemApi.VECTY.get(v);
+            MemApi.VECTX.set(v, x + y * DT);
+        }
+        return objs;
+    }
+
+    @Benchmark
+    public int columns()
+    {
+        return MemApi.addScaled(columns, "x", "y", DT);
+    }
+}
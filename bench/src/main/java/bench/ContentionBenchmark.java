@@ -0,0 +1,108 @@
+/* <ContentionBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  tasks concurrent tasks each alloc and free a few Vects, as
+ *  request handlers would. Each operation runs every task to
+ *  completion, under the locked pool, per thread magazines
+ *  (concurrent_mode) and shared lock free depots (lockfree_mode).
+ *
+ *  With threads=virtual, tasks run one per virtual thread. Virtual
+ *  threads are found reflectively so this still builds on 17, so run
+ *  the jar on 21 or up. On older JDKs it fails at setup instead of
+ *  quietly measuring something else. With threads=platform, tasks
+ *  run on a fixed pool of platform threads, for comparison. Growing
+ *  tasks shows whether the cost per task holds as threads multiply.
+ */
+
+package bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark
+{
+    private static final int PAIRS = 0x10; /* alloc/free pairs per task */
+    private static final int HELD = 0x4; /* instances a task holds */
+
+    @Param({"1000", "10000", "100000"})
+    public int tasks;
+
+    @Param({"virtual", "platform"})
+    public String threads;
+
+    @Param({"locked", "concurrent", "lockfree"})
+    public String mode;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        MemApi.concurrentMode(mode.equals("concurrent"));
+        MemApi.lockfreeMode(mode.equals("lockfree"));
+        executor = threads.equals("virtual") ? virtualExecutor()
+            : Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        MemApi.flushDepots();
+        MemApi.lockfreeMode(false);
+        MemApi.concurrentMode(false);
+    }
+
+    @Benchmark
+    public void handleRequests() throws InterruptedException
+    {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int t = 0; t < tasks; t++)
+        {
+            executor.execute(() ->
+            {
+                Object[] held = new Object[HELD];
+                for (int i = 0; i < PAIRS; i += HELD)
+                {
+                    for (int k = 0; k < HELD; k++)
+                    {
+                        held[k] = MemApi.alloc(MemApi.VECT);
+                    }
+                    for (int k = 0; k < HELD; k++)
+                    {
+                        MemApi.free(held[k]);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    /* a virtual thread per task executor, JDK 21 and up */
+    private static ExecutorService virtualExecutor()
+    {
+        try
+        {
+            return (ExecutorService)Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(
+                "virtual threads need JDK 21 or up", e);
+        }
+    }
+}
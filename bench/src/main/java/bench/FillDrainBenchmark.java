@@ -0,0 +1,73 @@
+/* <FillDrainBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Fill then drain: count objects are allocated, then all of them are
+ *  released, as in a frame or request that discards it's temporaries.
+ *  Compares single calls, the batch API and a scope against plain new.
+ */
+
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FillDrainBenchmark
+{
+    @Param({"512", "16384"})
+    public int count;
+
+    private Object[] objs;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        objs = new Object[count];
+    }
+
+    @Benchmark
+    public void pool(Blackhole bh)
+    {
+        for (int i = 0; i < count; i++) objs[i] = MemApi.alloc(MemApi.VECT);
+        bh.consume(objs);
+        for (int i = 0; i < count; i++) MemApi.free(objs[i]);
+    }
+
+    @Benchmark
+    public void poolBatch(Blackhole bh)
+    {
+        int n = MemApi.allocBatch(MemApi.VECT, count, objs);
+        bh.consume(objs);
+        MemApi.freeBatch(objs, 0, n);
+    }
+
+    @Benchmark
+    public void poolScope(Blackhole bh) throws Exception
+    {
+        try (AutoCloseable scope = MemApi.scope())
+        {
+            for (int i = 0; i < count; i++)
+            {
+                objs[i] = MemApi.alloc(MemApi.VECT);
+            }
+            bh.consume(objs);
+        }
+    }
+
+    @Benchmark
+    public void plainNew(Blackhole bh)
+    {
+        for (int i = 0; i < count; i++) objs[i] = MemApi.newVect();
+        bh.consume(objs);
+        Arrays.fill(objs, null);
+    }
+}
@@ -0,0 +1,73 @@
+/* <FreeLookupBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Cost of finding an object on free, with livePages worth of live
+ *  objects in the pool. freeRecent releases the object it just
+ *  allocated (what used to be an L1 hit), freeRandom releases a long
+ *  lived object from anywhere in the pool (what used to miss both
+ *  caches) and freeUnpooled releases an object the pool never handed
+ *  out, which used to search every page before failing.
+ */
+
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreeLookupBenchmark
+{
+    @Param({"1", "16", "256"})
+    public int livePages;
+
+    private Object[] live;
+    private Object unpooled;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        live = new Object[livePages * 0x200];
+        for (int i = 0; i < live.length; i++)
+        {
+            live[i] = MemApi.alloc(MemApi.VECT);
+        }
+        unpooled = MemApi.newVect();
+        random = new SplittableRandom(42);
+
+        /* failed frees report to stderr, keep it out of the results */
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public int freeRecent()
+    {
+        return MemApi.free(MemApi.alloc(MemApi.VECT));
+    }
+
+    @Benchmark
+    public int freeRandom()
+    {
+        /* release one live object and put a fresh one in it's place */
+        int i = random.nextInt(live.length);
+        int status = MemApi.free(live[i]);
+        live[i] = MemApi.alloc(MemApi.VECT);
+        return status;
+    }
+
+    @Benchmark
+    public int freeUnpooled()
+    {
+        return MemApi.free(unpooled);
+    }
+}
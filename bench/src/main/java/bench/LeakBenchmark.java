@@ -0,0 +1,68 @@
+/* <LeakBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Cost of leak tracking on alloc and free. A pool holds live Vects,
+ *  each operation frees one at random and allocates another in it's
+ *  place. "off" is the plain pool, "unsampled" tracks every object
+ *  without recording stacks, "sampled" records the stack of one
+ *  alloc in 64 (the default) and "every" records all of them.
+ */
+
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeakBenchmark
+{
+    private static final int STEPS = 0x10000; /* random steps, cycled */
+
+    @Param({"off", "unsampled", "sampled", "every"})
+    public String tracking;
+
+    @Param({"16384"})
+    public int live;
+
+    private Object pool;
+    private Object[] objs;
+    private int[] slots;
+    private int step = 0;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        pool = MemApi.newPool("leak-" + tracking);
+        MemApi.poolFlag(pool, "leak_tracking", !tracking.equals("off"));
+        MemApi.poolFlag(pool, "leak_sampling", tracking.equals("every") ? 1
+            : tracking.equals("sampled") ? 0x40 : 0);
+
+        SplittableRandom random = new SplittableRandom(42);
+        objs = new Object[live];
+        for (int i = 0; i < live; i++)
+        {
+            objs[i] = MemApi.alloc(pool, MemApi.VECT);
+        }
+        slots = new int[STEPS];
+        for (int i = 0; i < STEPS; i++)
+        {
+            slots[i] = random.nextInt(live);
+        }
+    }
+
+    @Benchmark
+    public Object churn()
+    {
+        int i = slots[step++ & (STEPS - 1)];
+        MemApi.free(pool, objs[i]);
+        return objs[i] = MemApi.alloc(pool, MemApi.VECT);
+    }
+}
@@ -0,0 +1,348 @@
+/* <MemApi.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Mem and Vect live in the default package, which classes in a named
+ *  package (as JMH requires) can not refer to. This class reaches them
+ *  through method handles held in static final fields, which the JIT
+ *  treats as constants and inlines like direct calls.
+ */
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+
+public final class MemApi
+{
+    /* ===== CLASS MEMBERS ===== */
+    public static final Class<?> MEM = load("Mem");
+    public static final Class<?> VECT = load("Vect");
+    public static final Class<?> COLUMNS = load("MemColumns");
+    public static final Class<?> POOL = load("MemPool");
+    public static final Class<?> POLICY = load("PlacementPolicy");
+
+    /* ===== FIELD MEMBERS ===== */
+    public static final VarHandle VECTX = vectField("x");
+    public static final VarHandle VECTY = vectField("y");
+
+    /* ===== HANDLE MEMBERS ===== */
+    private static final MethodHandle ALLOC = find("alloc",
+        MethodType.methodType(Object.class, Class.class));
+    private static final MethodHandle FREE = find("free",
+        MethodType.methodType(int.class, Object.class));
+    private static final MethodHandle ALLOCHANDLE = find("allocHandle",
+        MethodType.methodType(long.class, Class.class));
+    private static final MethodHandle FREEHANDLE = find("free",
+        MethodType.methodType(int.class, long.class));
+    private static final MethodHandle ALLOCBATCH = find("allocBatch",
+        MethodType.methodType(int.class, Class.class, int.class,
+            Object[].class));
+    private static final MethodHandle FREEBATCH = find("freeBatch",
+        MethodType.methodType(int.class, Object[].class, int.class,
+            int.class));
+    private static final MethodHandle ALLOCARRAY = find("allocArray",
+        MethodType.methodType(Object.class, Class.class, int.class));
+    private static final MethodHandle FREEARRAY = find("freeArray",
+        MethodType.methodType(int.class, Object.class));
+    private static final MethodHandle SCOPE = find("scope",
+        MethodType.methodType(load("MemScope")))
+        .asType(MethodType.methodType(AutoCloseable.class));
+    private static final MethodHandle NEWVECT = vectCtor();
+    private static final MethodHandle NEWCOLUMNS = columns("create", true,
+        MethodType.methodType(COLUMNS, Class.class, int.class))
+        .asType(MethodType.methodType(Object.class, Class.class, int.class));
+    private static final MethodHandle COLUMNSALLOC = columns("alloc", false,
+        MethodType.methodType(long.class))
+        .asType(MethodType.methodType(long.class, Object.class));
+    private static final MethodHandle ADDSCALED = columns("addScaled", false,
+        MethodType.methodType(int.class, String.class, String.class,
+            float.class))
+        .asType(MethodType.methodType(int.class, Object.class, String.class,
+            String.class, float.class));
+    private static final MethodHandle SETSIMD = simdSetter();
+    private static final MethodHandle SETCONCURRENT = flagSetter(
+        "concurrent_mode");
+    private static final MethodHandle SETLOCKFREE = flagSetter(
+        "lockfree_mode");
+    private static final MethodHandle FLUSHDEPOTS = find("flushDepots",
+        MethodType.methodType(void.class));
+    private static final MethodHandle NEWPOOL = poolCtor();
+    private static final MethodHandle POOLALLOC = pool("alloc",
+        MethodType.methodType(Object.class, Class.class));
+    private static final MethodHandle POOLFREE = pool("free",
+        MethodType.methodType(int.class, Object.class));
+    private static final MethodHandle POOLSTATS = pool("stats",
+        MethodType.methodType(load("MemStats")));
+
+    private MemApi() { }
+
+    /* ===== LOOKUP FUNCTIONS ===== */
+    private static Class<?> load(String name)
+    {
+        try { return Class.forName(name); }
+        catch (ClassNotFoundException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle find(String name, MethodType type)
+    {
+        try { return MethodHandles.publicLookup().findStatic(MEM, name, type); }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle vectCtor()
+    {
+        try
+        {
+            return MethodHandles.publicLookup()
+                .findConstructor(VECT, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle columns(String name, boolean isStatic,
+        MethodType type)
+    {
+        try
+        {
+            return isStatic
+                ? MethodHandles.publicLookup().findStatic(COLUMNS, name, type)
+                : MethodHandles.publicLookup().findVirtual(COLUMNS, name, type);
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle simdSetter()
+    {
+        try
+        {
+            return MethodHandles.publicLookup()
+                .findStaticSetter(COLUMNS, "simd_mode", boolean.class);
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    /* flags live on the default pool, Mem.pool */
+    private static MethodHandle poolCtor()
+    {
+        try
+        {
+            return MethodHandles.publicLookup()
+                .findConstructor(POOL, MethodType.methodType(void.class,
+                    String.class))
+                .asType(MethodType.methodType(Object.class, String.class));
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle pool(String name, MethodType type)
+    {
+        try
+        {
+            MethodHandle handle = MethodHandles.publicLookup()
+                .findVirtual(POOL, name, type);
+            return handle.asType(handle.type().changeParameterType(0,
+                Object.class).changeReturnType(
+                    type.returnType().isPrimitive()
+                        ? type.returnType() : Object.class));
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static MethodHandle flagSetter(String name)
+    {
+        try
+        {
+            Object pool = MethodHandles.publicLookup()
+                .findStaticGetter(MEM, "pool", load("MemPool")).invoke();
+            return MethodHandles.publicLookup()
+                .findSetter(load("MemPool"), name, boolean.class)
+                .bindTo(pool);
+        }
+        catch (Throwable t) { throw new IllegalStateException(t); }
+    }
+
+    private static VarHandle vectField(String name)
+    {
+        try
+        {
+            return MethodHandles.publicLookup()
+                .findVarHandle(VECT, name, float.class);
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    private static RuntimeException rethrow(Throwable t)
+    {
+        if (t instanceof RuntimeException) return (RuntimeException)t;
+        if (t instanceof Error) throw (Error)t;
+        return new IllegalStateException(t);
+    }
+
+    /* ===== MEM FUNCTIONS ===== */
+    public static Object alloc(Class<?> type)
+    {
+        try { return (Object)ALLOC.invokeExact((Class)type); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int free(Object obj)
+    {
+        try { return (int)FREE.invokeExact(obj); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static long allocHandle(Class<?> type)
+    {
+        try { return (long)ALLOCHANDLE.invokeExact((Class)type); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int freeHandle(long handle)
+    {
+        try { return (int)FREEHANDLE.invokeExact(handle); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int allocBatch(Class<?> type, int n, Object[] out)
+    {
+        try { return (int)ALLOCBATCH.invokeExact((Class)type, n, out); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int freeBatch(Object[] objs, int from, int to)
+    {
+        try { return (int)FREEBATCH.invokeExact(objs, from, to); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static Object allocArray(Class<?> component, int minLength)
+    {
+        try { return (Object)ALLOCARRAY.invokeExact((Class)component, minLength); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int freeArray(Object array)
+    {
+        try { return (int)FREEARRAY.invokeExact(array); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static AutoCloseable scope()
+    {
+        try { return (AutoCloseable)SCOPE.invokeExact(); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static void concurrentMode(boolean on)
+    {
+        try { SETCONCURRENT.invokeExact(on); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static void lockfreeMode(boolean on)
+    {
+        try { SETLOCKFREE.invokeExact(on); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static void flushDepots()
+    {
+        try { FLUSHDEPOTS.invokeExact(); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    /* plain new Vect(), the baseline every pooled path competes with */
+    public static Object newVect()
+    {
+        try { return (Object)NEWVECT.invokeExact(); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    /* ===== COLUMNS FUNCTIONS ===== */
+    public static Object newColumns(Class<?> type, int capacity)
+    {
+        try { return (Object)NEWCOLUMNS.invokeExact((Class)type, capacity); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static long columnsAlloc(Object columns)
+    {
+        try { return (long)COLUMNSALLOC.invokeExact(columns); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int addScaled(Object columns, String dst, String src,
+        float k)
+    {
+        try { return (int)ADDSCALED.invokeExact(columns, dst, src, k); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static void simdMode(boolean on)
+    {
+        try { SETSIMD.invokeExact(on); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    /* ===== POOL FUNCTIONS ===== */
+    public static Object newPool(String name)
+    {
+        try { return (Object)NEWPOOL.invokeExact(name); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static Object alloc(Object pool, Class<?> type)
+    {
+        try { return (Object)POOLALLOC.invokeExact(pool, (Class)type); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static int free(Object pool, Object obj)
+    {
+        try { return (int)POOLFREE.invokeExact(pool, obj); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    /* sets the pool's placement policy from it's factory name, */
+    /* "directory" for none */
+    public static void placement(Object pool, String policy)
+    {
+        try
+        {
+            Object value = policy.equals("directory") ? null
+                : POLICY.getMethod(policy).invoke(null);
+            POOL.getField("placement_policy").set(pool, value);
+        }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    /* sets a public flag field of the pool, such as leak_tracking */
+    public static void poolFlag(Object pool, String name, Object value)
+    {
+        try { POOL.getField(name).set(pool, value); }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+    }
+
+    public static int pageCount(Object pool)
+    {
+        try { return (int)stat(pool, "getPageCount"); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    public static double averageScan(Object pool)
+    {
+        try { return (double)stat(pool, "getAverageScan"); }
+        catch (Throwable t) { throw rethrow(t); }
+    }
+
+    private static Object stat(Object pool, String getter) throws Throwable
+    {
+        Object stats = (Object)POOLSTATS.invokeExact(pool);
+        return stats.getClass().getMethod(getter).invoke(stats);
+    }
+}
@@ -0,0 +1,76 @@
+/* <MixedClassBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Mixed classes: each operation allocates one instance of each of
+ *  classes different classes, then frees them all. The class counts
+ *  stay below, reach and exceed the default page diversity of 0x20,
+ *  past which a class has to spill onto pages of it's own.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedClassBenchmark
+{
+    /* public classes with a public no-arg ctor */
+    private static final Class<?>[] CLASSES = {
+        Object.class, StringBuilder.class, StringBuffer.class,
+        java.util.ArrayList.class, java.util.LinkedList.class,
+        java.util.HashMap.class, java.util.TreeMap.class,
+        java.util.HashSet.class, java.util.TreeSet.class,
+        java.util.LinkedHashMap.class, java.util.LinkedHashSet.class,
+        java.util.ArrayDeque.class, java.util.Vector.class,
+        java.util.Stack.class, java.util.Hashtable.class,
+        java.util.IdentityHashMap.class, java.util.WeakHashMap.class,
+        java.util.PriorityQueue.class, java.util.BitSet.class,
+        java.util.Properties.class, java.util.Date.class,
+        java.util.Random.class, java.util.zip.CRC32.class,
+        java.util.zip.Adler32.class,
+        java.util.concurrent.ConcurrentHashMap.class,
+        java.util.concurrent.ConcurrentLinkedQueue.class,
+        java.util.concurrent.ConcurrentLinkedDeque.class,
+        java.util.concurrent.CopyOnWriteArrayList.class,
+        java.util.concurrent.CopyOnWriteArraySet.class,
+        java.util.concurrent.LinkedBlockingQueue.class,
+        java.util.concurrent.LinkedBlockingDeque.class,
+        java.util.concurrent.LinkedTransferQueue.class,
+        java.util.concurrent.PriorityBlockingQueue.class,
+        java.util.concurrent.ConcurrentSkipListMap.class,
+        java.util.concurrent.ConcurrentSkipListSet.class,
+        java.util.concurrent.atomic.AtomicInteger.class,
+        java.util.concurrent.atomic.AtomicLong.class,
+        java.util.concurrent.atomic.AtomicBoolean.class,
+        java.util.concurrent.atomic.AtomicReference.class,
+        java.util.concurrent.atomic.LongAdder.class,
+    };
+
+    @Param({"4", "32", "40"})
+    public int classes;
+
+    private Object[] objs;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        objs = new Object[classes];
+    }
+
+    @Benchmark
+    public void pool(Blackhole bh)
+    {
+        for (int i = 0; i < classes; i++) objs[i] = MemApi.alloc(CLASSES[i]);
+        bh.consume(objs);
+        for (int i = 0; i < classes; i++) MemApi.free(objs[i]);
+    }
+}
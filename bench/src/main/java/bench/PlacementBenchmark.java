@@ -0,0 +1,93 @@
+/* <PlacementBenchmark.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Fragmenting churn under each placement policy. A pool holds live
+ *  objects of eight classes. Each operation frees one at random and
+ *  allocates an instance of a random class in it's place, so frees
+ *  punch holes all over the pages. Next to the time per operation,
+ *  pageCount is the pool's page count and averageScan the average
+ *  pages a slow alloc looked at, the two costs a policy trades
+ *  between.
+ */
+
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark
+{
+    private static final Class<?>[] CLASSES = {
+        MemApi.VECT, Object.class, StringBuilder.class,
+        java.util.ArrayList.class, java.util.HashMap.class,
+        java.util.ArrayDeque.class, java.util.BitSet.class,
+        java.util.Date.class,
+    };
+    private static final int STEPS = 0x10000; /* random steps, cycled */
+
+    @Param({"directory", "firstFit", "nextFit", "typeSegregated",
+        "bestLocality"})
+    public String policy;
+
+    @Param({"16384"})
+    public int live;
+
+    private Object pool;
+    private Object[] objs;
+    private int[] slots;
+    private int[] classes;
+    private int step = 0;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters
+    {
+        public int pageCount;
+        public double averageScan;
+
+        @TearDown(Level.Iteration)
+        public void count(PlacementBenchmark bench)
+        {
+            pageCount = MemApi.pageCount(bench.pool);
+            averageScan = MemApi.averageScan(bench.pool);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        pool = MemApi.newPool("placement-" + policy);
+        MemApi.placement(pool, policy);
+
+        SplittableRandom random = new SplittableRandom(42);
+        objs = new Object[live];
+        for (int i = 0; i < live; i++)
+        {
+            objs[i] = MemApi.alloc(pool, CLASSES[random.nextInt(CLASSES.length)]);
+        }
+        slots = new int[STEPS];
+        classes = new int[STEPS];
+        for (int i = 0; i < STEPS; i++)
+        {
+            slots[i] = random.nextInt(live);
+            classes[i] = random.nextInt(CLASSES.length);
+        }
+    }
+
+    @Benchmark
+    public Object churn(Counters counters)
+    {
+        int i = step++ & (STEPS - 1);
+        MemApi.free(pool, objs[slots[i]]);
+        return objs[slots[i]] = MemApi.alloc(pool, CLASSES[classes[i]]);
+    }
+}
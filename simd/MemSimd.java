@@ -0,0 +1,79 @@
+/* <MemSimd.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Vector API kernels behind the bulk operations of MemColumns.
+ *  This is the only source that needs jdk.incubator.vector, so it
+ *  sits apart from the library sources and is compiled on it's own
+ *  with the module added. MemColumns finds the kernels reflectively,
+ *  and only when the module was added to the running VM
+ *  (--add-modules jdk.incubator.vector), so the rest of the library
+ *  builds and runs without it.
+ *
+ * CONTENTS:
+ *  - Imports
+ *  - Class block
+ *  - Private class macros
+ *  - Kernel functions
+ */
+
+ /* ===== IMPORTS ===== */
+ import jdk.incubator.vector.*;
+
+ /* ===== CLASS BLOCK ===== */
+ final class MemSimd
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final VectorSpecies<Float> FLOATS =
+        FloatVector.SPECIES_PREFERRED;
+
+    private MemSimd() { }
+
+    /* ===== KERNEL FUNCTIONS ===== */
+    /* each kernel covers the first n elements, whole vectors first */
+    /* and the remaining tail one element at a time */
+    static void add(float[] a, int n, float value)
+    {
+        int i = 0;
+        int bound = FLOATS.loopBound(n);
+        for (; i < bound; i += FLOATS.length())
+        {
+            FloatVector.fromArray(FLOATS, a, i).add(value).intoArray(a, i);
+        }
+        for (; i < n; i++)
+        {
+            a[i] += value;
+        }
+    }
+
+    static void scale(float[] a, int n, float value)
+    {
+        int i = 0;
+        int bound = FLOATS.loopBound(n);
+        for (; i < bound; i += FLOATS.length())
+        {
+            FloatVector.fromArray(FLOATS, a, i).mul(value).intoArray(a, i);
+        }
+        for (; i < n; i++)
+        {
+            a[i] *= value;
+        }
+    }
+
+    static void addScaled(float[] dst, float[] src, int n, float k)
+    {
+        int i = 0;
+        int bound = FLOATS.loopBound(n);
+        for (; i < bound; i += FLOATS.length())
+        {
+            FloatVector s = FloatVector.fromArray(FLOATS, src, i);
+            FloatVector d = FloatVector.fromArray(FLOATS, dst, i);
+            s.mul(k).add(d).intoArray(dst, i); /* rounds like the tail */
+        }
+        for (; i < n; i++)
+        {
+            dst[i] += src[i] * k;
+        }
+    } /* KERNEL FUNCTIONS END */
+ } /* END CLASS BLOCK */
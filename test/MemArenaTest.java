@@ -0,0 +1,52 @@
+/* <MemArenaTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Closing arenas. A memory-mapped arena must let go of it's file
+ *  when closed, and handles from before the close must be stale.
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.nio.file.*;
+ import org.junit.jupiter.api.*;
+ import org.junit.jupiter.api.io.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemArenaTest
+ {
+    /* ===== MAPPED CLOSE TEST ===== */
+    @Test
+    public void mappedCloseReleasesFile(@TempDir Path dir)
+    {
+        MemArena<Vect> arena = MemArena.create(Vect.class, 0x10,
+            dir.resolve("vects"));
+        long handle = arena.alloc();
+        assertTrue(arena.address(handle) >= 0);
+
+        arena.close();
+        assertFalse(arena.info_channel.isOpen());
+        assertEquals(-1, arena.address(handle));
+        assertEquals(-1, arena.alloc());
+        arena.close();
+    } /* MAPPED CLOSE TEST END */
+
+    /* ===== DIRECT CLOSE TEST ===== */
+    /* a direct arena starts over empty */
+    @Test
+    public void directCloseStartsOver()
+    {
+        try (MemArena<Vect> arena = MemArena.create(Vect.class, 0x10))
+        {
+            long handle = arena.alloc();
+            arena.close();
+            assertEquals(-1, arena.address(handle));
+            assertEquals(0, arena.count());
+
+            long next = arena.alloc();
+            assertTrue(arena.address(next) >= 0);
+            assertEquals(1, arena.count());
+        }
+    } /* DIRECT CLOSE TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,94 @@
+/* <MemColumnsTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Columnar records. Records copied in and out of the columns must
+ *  survive other records being freed and moved, and the bulk
+ *  operations must give the same results with or without SIMD.
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemColumnsTest
+ {
+    /* ===== HELPER FUNCTIONS ===== */
+    private static Vect vect(float x, float y, float z)
+    {
+        Vect v = new Vect();
+        v.x = x;
+        v.y = y;
+        v.z = z;
+        return v;
+    } /* HELPER FUNCTIONS END */
+
+    /* ===== ROUND TRIP TEST ===== */
+    @Test
+    public void storeLoadAcrossFree()
+    {
+        MemColumns<Vect> columns = MemColumns.create(Vect.class, 0x10);
+        long first = columns.alloc();
+        long second = columns.alloc();
+        assertEquals(1, columns.store(second, vect(1.0f, 2.0f, 3.0f)));
+
+        /* second moves into first's place */
+        assertEquals(1, columns.free(first));
+        assertEquals(0, columns.index(second));
+        assertEquals(-1, columns.index(first));
+        assertEquals(0, columns.free(first));
+
+        Vect v = new Vect();
+        assertEquals(1, columns.load(second, v));
+        assertEquals(1.0f, v.x);
+        assertEquals(2.0f, v.y);
+        assertEquals(3.0f, v.z);
+    } /* ROUND TRIP TEST END */
+
+    /* ===== BULK TEST ===== */
+    /* enough records to cover whole vectors and a tail */
+    @Test
+    public void bulkMatchesScalar()
+    {
+        /* surefire adds the Vector API module */
+        boolean simd = MemColumns.simd_mode;
+        assertTrue(simd);
+        try
+        {
+            float[][] results = new float[2][];
+            for (int pass = 0; pass < 2; pass++)
+            {
+                MemColumns.simd_mode = pass == 1 && simd;
+                MemColumns<Vect> columns = MemColumns.create(Vect.class, 0);
+                for (int i = 0; i < 37; i++)
+                {
+                    columns.store(columns.alloc(), vect(i, 1.0f, 0.0f));
+                }
+
+                columns.add("x", 2.0f);
+                columns.scale("x", 0.5f);
+                columns.addScaled("x", "y", 4.0f);
+                columns.map("y", y -> y * 3.0);
+                results[pass] = Arrays.copyOf(columns.floats("x"),
+                    columns.count());
+                assertEquals(3.0f, columns.floats("y")[36]);
+            }
+
+            assertEquals((0 + 2.0f) * 0.5f + 4.0f, results[0][0]);
+            assertEquals((36 + 2.0f) * 0.5f + 4.0f, results[0][36]);
+            assertArrayEquals(results[0], results[1]);
+        }
+        finally { MemColumns.simd_mode = simd; }
+    } /* BULK TEST END */
+
+    /* ===== CREATE TEST ===== */
+    /* only flat classes can be laid out as columns */
+    @Test
+    public void rejectsReferenceFields()
+    {
+        assertNull(MemColumns.create(String.class, 0x10));
+    } /* CREATE TEST END */
+ } /* END CLASS BLOCK */
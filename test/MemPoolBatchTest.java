@@ -0,0 +1,65 @@
+/* <MemPoolBatchTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Batch alloc and free. A batch freed and alloced again must be
+ *  reused whole, and ranges that don't fit the array must be
+ *  rejected without freeing anything or skewing the stats.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolBatchTest
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int BATCHSIZE = 0x100;
+
+    /* ===== ROUND TRIP TEST ===== */
+    @Test
+    public void batchRoundTrip()
+    {
+        MemPool pool = new MemPool("trip", 0x40, 0x4);
+        Object[] objs = new Object[BATCHSIZE];
+        assertEquals(BATCHSIZE, pool.allocBatch(Vect.class, BATCHSIZE, objs));
+        assertEquals(BATCHSIZE, pool.freeBatch(objs, 0, BATCHSIZE));
+
+        /* freeing them again fails, they are all free */
+        long failed = pool.stats().failedFrees;
+        assertEquals(0, pool.freeBatch(objs, 0, BATCHSIZE));
+        assertEquals(failed + BATCHSIZE, pool.stats().failedFrees);
+
+        long constructs = pool.stats().constructs;
+        Object[] again = new Object[BATCHSIZE];
+        assertEquals(BATCHSIZE, pool.allocBatch(Vect.class, BATCHSIZE, again));
+        assertEquals(constructs, pool.stats().constructs);
+
+        /* half of the batch, then the half still live */
+        assertEquals(BATCHSIZE / 2, pool.freeBatch(again, BATCHSIZE / 4,
+            BATCHSIZE * 3 / 4));
+        assertEquals(BATCHSIZE / 2, pool.freeBatch(again, 0, BATCHSIZE));
+    } /* ROUND TRIP TEST END */
+
+    /* ===== BAD RANGE TEST ===== */
+    @Test
+    public void badRangesRejected()
+    {
+        MemPool pool = new MemPool("range");
+        Object[] objs = new Object[4];
+        assertEquals(4, pool.allocBatch(Vect.class, 4, objs));
+
+        long failed = pool.stats().failedFrees;
+        assertEquals(0, pool.freeBatch(objs, 3, 1));
+        assertEquals(0, pool.freeBatch(objs, -1, 2));
+        assertEquals(0, pool.freeBatch(objs, 0, 5));
+        assertEquals(0, pool.freeBatch(null, 0, 0));
+        assertEquals(failed + 4, pool.stats().failedFrees);
+        assertEquals(0, pool.allocBatch(Vect.class, -1, objs));
+
+        /* nothing was freed */
+        assertEquals(4, pool.freeBatch(objs, 0, 4));
+    } /* BAD RANGE TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,196 @@
+/* <MemPoolCacheTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Frees through the per thread magazines of concurrent mode and the
+ *  shared depots of lockfree mode. Instances held by either cache
+ *  stay used in their pages, so a second free of an instance must be
+ *  rejected and never hand it out twice.
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import java.util.concurrent.*;
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolCacheTest
+ {
+    /* ===== HELPER FUNCTIONS ===== */
+    private static MemPool pool(String mode)
+    {
+        MemPool pool = new MemPool(mode);
+        pool.concurrent_mode = mode.equals("concurrent");
+        pool.lockfree_mode = mode.equals("lockfree");
+        return pool;
+    }
+
+    /* allocs count instances, returns how many were handed out */
+    /* while already handed out */
+    private static int duplicates(MemPool pool, int count)
+    {
+        Set<Object> out = Collections.newSetFromMap(new IdentityHashMap<>());
+        int duplicates = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (!out.add(pool.alloc(Vect.class))) duplicates++;
+        }
+        return duplicates;
+    } /* HELPER FUNCTIONS END */
+
+    /* ===== DOUBLE FREE TESTS ===== */
+    @Test
+    public void concurrentDoubleFree()
+    {
+        doubleFree(pool("concurrent"));
+    }
+
+    @Test
+    public void lockfreeDoubleFree()
+    {
+        doubleFree(pool("lockfree"));
+    }
+
+    private void doubleFree(MemPool pool)
+    {
+        Object obj = pool.alloc(Vect.class);
+        assertEquals(1, pool.free(obj));
+        assertEquals(0, pool.free(obj));
+        assertEquals(0, duplicates(pool, 0x400));
+    }
+
+    /* a free of an instance still held by the cache is rejected */
+    @Test
+    public void concurrentFreeOfCached()
+    {
+        MemPool pool = pool("concurrent");
+        Object obj = pool.alloc(Vect.class);
+        pool.free(obj);
+        pool.concurrent_mode = false;
+        assertEquals(0, pool.free(obj));
+        pool.concurrent_mode = true;
+        assertEquals(0, duplicates(pool, 0x400));
+    } /* DOUBLE FREE TESTS END */
+
+    /* ===== CROSS THREAD TESTS ===== */
+    @Test
+    public void concurrentCrossThreadFree() throws Exception
+    {
+        crossThreadFree(pool("concurrent"));
+    }
+
+    @Test
+    public void lockfreeCrossThreadFree() throws Exception
+    {
+        crossThreadFree(pool("lockfree"));
+    }
+
+    /* instances lent on one thread and freed on another are freed */
+    /* once, and the lending thread can't free them again */
+    private void crossThreadFree(MemPool pool) throws Exception
+    {
+        Object[] objs = new Object[0x100];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        int freed = other.submit(() ->
+        {
+            int count = 0;
+            for (Object obj : objs) count += pool.free(obj);
+            return count;
+        }).get();
+        other.shutdown();
+
+        assertEquals(objs.length, freed);
+        for (Object obj : objs) assertEquals(0, pool.free(obj));
+        assertEquals(0, duplicates(pool, 0x1000));
+    } /* CROSS THREAD TESTS END */
+
+    /* ===== BATCH TESTS ===== */
+    @Test
+    public void concurrentBatchFree()
+    {
+        batchFree(pool("concurrent"));
+    }
+
+    @Test
+    public void lockfreeBatchFree()
+    {
+        batchFree(pool("lockfree"));
+    }
+
+    /* a batch freed instance can't be freed again through a cache */
+    private void batchFree(MemPool pool)
+    {
+        Object[] objs = new Object[0x40];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+        assertEquals(objs.length, pool.freeBatch(objs, 0, objs.length));
+        for (Object obj : objs) assertEquals(0, pool.free(obj));
+        assertEquals(0, duplicates(pool, 0x400));
+    } /* BATCH TESTS END */
+
+    /* ===== EXITED THREAD TEST ===== */
+    /* a thread per task never flushes it's magazine. once the GC */
+    /* takes such threads, their magazines go back to the pages */
+    /* instead of each stranding half a magazine of instances */
+    @Test
+    public void exitedThreadMagazines() throws Exception
+    {
+        MemPool pool = pool("concurrent");
+        int threads = 0x200;
+        for (int i = 0; i < threads; i++)
+        {
+            Thread task = new Thread(() ->
+            {
+                Object[] held = new Object[0x4];
+                for (int k = 0; k < held.length; k++) held[k] = pool.alloc(Vect.class);
+                for (Object obj : held) pool.free(obj);
+            });
+            task.start();
+            task.join();
+            if (i % 0x10 == 0) System.gc();
+        }
+
+        /* stranded, every thread would have built 0x20 instances */
+        assertTrue(pool.stats().constructs < threads * 0x20 / 4);
+    } /* EXITED THREAD TEST END */
+
+    /* ===== VIRTUAL THREAD TEST ===== */
+    /* virtual threads in concurrent mode trade through the depots, */
+    /* so a task per thread strands nothing even before any GC. */
+    /* needs JDK 21 or up, found reflectively */
+    @Test
+    public void virtualThreadsUseDepots() throws Exception
+    {
+        ExecutorService executor;
+        try
+        {
+            executor = (ExecutorService)Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException exception) { executor = null; }
+        Assumptions.assumeTrue(executor != null, "virtual threads need JDK 21");
+
+        MemPool pool = pool("concurrent");
+        int tasks = 0x1000;
+        ArrayList<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < tasks; i++)
+        {
+            done.add(executor.submit(() ->
+            {
+                Object[] held = new Object[0x4];
+                for (int k = 0; k < held.length; k++) held[k] = pool.alloc(Vect.class);
+                for (Object obj : held) assertEquals(1, pool.free(obj));
+            }));
+        }
+        for (Future<?> task : done) task.get();
+        executor.shutdown();
+
+        /* at most a depot and a few tasks worth were ever built */
+        assertTrue(pool.stats().constructs < tasks);
+        pool.flushDepots();
+        assertEquals(0, duplicates(pool, 0x1000));
+    } /* VIRTUAL THREAD TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,66 @@
+/* <MemPoolCompactTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Compaction of sparse pages. Free instances of a sparse page move
+ *  to pages still in use, after which the page only drains and is
+ *  dropped once it's last live object is freed. Free instances that
+ *  find no room must stay pooled.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolCompactTest
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int PAGESIZE = 0x40;
+
+    /* ===== DRAIN TEST ===== */
+    /* page 0 is left with one survivor, page 1 full and page 2 */
+    /* with room for page 0's free instances */
+    @Test
+    public void sparsePageDrains()
+    {
+        MemPool pool = new MemPool("drain", PAGESIZE, 0x4);
+        Object[] objs = new Object[PAGESIZE * 2 + 1];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+        for (int i = 1; i < PAGESIZE; i++) pool.free(objs[i]);
+        assertEquals(3, pool.stats().pageCount);
+
+        assertEquals(0, pool.compact());
+        long constructs = pool.stats().constructs;
+
+        /* the survivor's slot retires, emptying and dropping page 0 */
+        pool.free(objs[0]);
+        assertEquals(2, pool.stats().pageCount);
+
+        /* moved instances are reused, nothing is rebuilt */
+        for (int i = 1; i < PAGESIZE; i++) pool.alloc(Vect.class);
+        assertEquals(constructs, pool.stats().constructs);
+        assertEquals(2, pool.stats().pageCount);
+    } /* DRAIN TEST END */
+
+    /* ===== NO TARGET TEST ===== */
+    /* both pages are sparse, so no page can take free instances */
+    @Test
+    public void freeInstancesKeptWithoutTarget()
+    {
+        MemPool pool = new MemPool("keep", PAGESIZE, 0x4);
+        Object[] objs = new Object[PAGESIZE * 2];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+        for (int i = 0; i < objs.length; i++)
+        {
+            if (i % PAGESIZE != 0) pool.free(objs[i]);
+        }
+
+        assertEquals(0, pool.compact());
+        long constructs = pool.stats().constructs;
+        for (int i = 0; i < objs.length - 2; i++) pool.alloc(Vect.class);
+        assertEquals(constructs, pool.stats().constructs);
+        assertEquals(2, pool.stats().pageCount);
+    } /* NO TARGET TEST END */
+ } /* END CLASS BLOCK */
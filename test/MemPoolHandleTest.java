@@ -0,0 +1,60 @@
+/* <MemPoolHandleTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Handles. A handle stamps the generation of it's slot, so once
+ *  the object is freed the handle goes stale: get and free must
+ *  reject it, even after the slot is reused by a newer handle.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolHandleTest
+ {
+    /* ===== STALE HANDLE TEST ===== */
+    /* the freed slot is reused by the next alloc */
+    @Test
+    public void staleHandleRejected()
+    {
+        MemPool pool = new MemPool("stale");
+        long first = pool.allocHandle(Vect.class);
+        Object obj = pool.get(first);
+        assertNotNull(obj);
+        assertEquals(1, pool.free(first));
+
+        long second = pool.allocHandle(Vect.class);
+        assertNotEquals(first, second);
+        assertSame(obj, pool.get(second));
+
+        long failed = pool.stats().failedFrees;
+        assertNull(pool.get(first));
+        assertEquals(0, pool.free(first));
+        assertEquals(failed + 1, pool.stats().failedFrees);
+
+        /* the stale free left the newer handle live */
+        assertSame(obj, pool.get(second));
+        assertEquals(1, pool.free(second));
+    } /* STALE HANDLE TEST END */
+
+    /* ===== DOUBLE FREE TEST ===== */
+    @Test
+    public void doubleFreeRejected()
+    {
+        MemPool pool = new MemPool("double");
+        long handle = pool.allocHandle(Vect.class);
+        assertEquals(1, pool.free(handle));
+        assertEquals(0, pool.free(handle));
+        assertNull(pool.get(handle));
+
+        /* the object of a freed handle can't be freed either */
+        long next = pool.allocHandle(Vect.class);
+        Object obj = pool.get(next);
+        assertEquals(1, pool.free(obj));
+        assertEquals(0, pool.free(next));
+        assertEquals(0, pool.free(obj));
+    } /* DOUBLE FREE TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,104 @@
+/* <MemPoolLeakTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Leak tracking. Objects the GC takes without a free are counted
+ *  as leaks, objects still held or freed are not, and in reclaim
+ *  mode the slots of leaked objects are used again.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolLeakTest
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int PAGESIZE = 0x40;
+    private static final int GCTRIES = 50;
+
+    /* ===== HELPER FUNCTIONS ===== */
+    /* allocs count objects and drops them without a free */
+    private static void leak(MemPool pool, int count)
+    {
+        for (int i = 0; i < count; i++) assertNotNull(pool.alloc(Vect.class));
+    }
+
+    /* collects until expected leaks are found or tries run out, */
+    /* returns count found */
+    private static int collect(MemPool pool, int expected)
+        throws InterruptedException
+    {
+        int found = 0;
+        for (int i = 0; i < GCTRIES && found < expected; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+            found += pool.collectLeaks();
+        }
+        return found;
+    } /* HELPER FUNCTIONS END */
+
+    /* ===== COUNT TEST ===== */
+    @Test
+    public void droppedObjectsCounted() throws InterruptedException
+    {
+        MemPool pool = new MemPool("count", PAGESIZE, 0x4);
+        pool.leak_tracking = true;
+        pool.leak_sampling = 0;
+
+        Object[] kept = new Object[10];
+        for (int i = 0; i < kept.length; i++) kept[i] = pool.alloc(Vect.class);
+        leak(pool, 5);
+        assertEquals(5, collect(pool, 5));
+        assertEquals(5, pool.stats().leaks);
+
+        /* held objects still free, once */
+        for (Object obj : kept) assertEquals(1, pool.free(obj));
+        assertEquals(0, pool.free(kept[0]));
+
+        /* freed objects are not leaks once dropped */
+        kept = null;
+        assertEquals(0, collect(pool, 1));
+        assertEquals(5, pool.stats().leaks);
+    } /* COUNT TEST END */
+
+    /* ===== RECLAIM TEST ===== */
+    /* a page of leaked objects is used again, not grown past */
+    @Test
+    public void leakedSlotsReclaimed() throws InterruptedException
+    {
+        MemPool pool = new MemPool("reclaim", PAGESIZE, 0x4);
+        pool.leak_tracking = true;
+        pool.leak_reclaim = true;
+        pool.leak_sampling = 0;
+
+        leak(pool, PAGESIZE);
+        assertEquals(1, pool.stats().pageCount);
+        assertEquals(PAGESIZE, collect(pool, PAGESIZE));
+        assertEquals(PAGESIZE, pool.stats().leaksReclaimed);
+
+        Object[] objs = new Object[PAGESIZE];
+        for (int i = 0; i < PAGESIZE; i++) objs[i] = pool.alloc(Vect.class);
+        assertEquals(1, pool.stats().pageCount);
+        for (Object obj : objs) assertEquals(1, pool.free(obj));
+    } /* RECLAIM TEST END */
+
+    /* ===== NO RECLAIM TEST ===== */
+    /* without reclaim, slots of leaked objects stay used */
+    @Test
+    public void leakedSlotsKeptWithoutReclaim() throws InterruptedException
+    {
+        MemPool pool = new MemPool("keep", PAGESIZE, 0x4);
+        pool.leak_tracking = true;
+        pool.leak_sampling = 0;
+
+        leak(pool, PAGESIZE);
+        assertEquals(PAGESIZE, collect(pool, PAGESIZE));
+        assertEquals(0, pool.stats().leaksReclaimed);
+        leak(pool, 1);
+        assertEquals(2, pool.stats().pageCount);
+    } /* NO RECLAIM TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,67 @@
+/* <MemPoolLimitTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Quotas of array size classes. Arrays are pooled per component
+ *  type and power of two length, so they are limited by size class,
+ *  with bytes counting whole arrays of the class.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolLimitTest
+ {
+    /* ===== HELPER FUNCTIONS ===== */
+    /* allocs then frees count arrays, returns arrays built */
+    private static long churn(MemPool pool, int length, int count)
+    {
+        long constructs = pool.stats().constructs;
+        Object[] arrays = new Object[count];
+        for (int i = 0; i < count; i++)
+            arrays[i] = pool.allocArray(float.class, length);
+        for (Object array : arrays) pool.freeArray(array);
+        return pool.stats().constructs - constructs;
+    } /* HELPER FUNCTIONS END */
+
+    /* ===== COUNT LIMIT TEST ===== */
+    @Test
+    public void arrayCountLimit()
+    {
+        MemPool pool = new MemPool("count");
+        assertEquals(1, pool.limitArray(float.class, 1000, 2, -1, -1, false));
+        assertEquals(8, churn(pool, 1000, 8));
+
+        /* 1000 and 1024 share a size class, only 2 were kept */
+        assertEquals(6, churn(pool, 1024, 8));
+
+        /* other size classes are unlimited */
+        churn(pool, 2048, 8);
+        assertEquals(0, churn(pool, 2048, 8));
+    } /* COUNT LIMIT TEST END */
+
+    /* ===== BYTE LIMIT TEST ===== */
+    /* a float[1024] is 16 header and 4096 element bytes */
+    @Test
+    public void arrayByteLimit()
+    {
+        MemPool pool = new MemPool("bytes");
+        assertEquals(1, pool.limitArray(float.class, 1024, -1, 3 * 4112, -1,
+            false));
+        churn(pool, 1024, 8);
+        assertEquals(5, churn(pool, 1024, 8));
+    } /* BYTE LIMIT TEST END */
+
+    /* ===== ARRAY CLASS TEST ===== */
+    /* limit() can't name a size class, so it rejects arrays */
+    @Test
+    public void arrayClassRejected()
+    {
+        MemPool pool = new MemPool("class");
+        assertEquals(0, pool.limit(float[].class, 2, -1, -1, false));
+        assertEquals(0, pool.limitArray(float.class, -1, 2, -1, -1, false));
+    } /* ARRAY CLASS TEST END */
+ } /* END CLASS BLOCK */
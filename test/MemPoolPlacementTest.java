@@ -0,0 +1,88 @@
+/* <MemPoolPlacementTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Placement of instances that are reserved or moved rather than
+ *  alloced. With a type segregated policy, neither reserving nor
+ *  compacting may put two classes on one page, and free instances
+ *  left on a mixed page must still be reused.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolPlacementTest
+ {
+    /* ===== CLASS MACROS ===== */
+    private static final int PAGESIZE = 0x40;
+
+    /* ===== TEST CLASSES ===== */
+    public static final class Particle
+    {
+        public int id;
+    } /* TEST CLASSES END */
+
+    /* ===== RESERVE TEST ===== */
+    /* both classes fit one page, the policy gives each it's own */
+    @Test
+    public void reserveSegregates()
+    {
+        MemPool pool = new MemPool("reserve", PAGESIZE, 0x4);
+        pool.placement_policy = PlacementPolicy.typeSegregated();
+        assertEquals(PAGESIZE / 2, pool.reserve(Vect.class, PAGESIZE / 2));
+        assertEquals(PAGESIZE / 2, pool.reserve(Particle.class, PAGESIZE / 2));
+        assertEquals(2, pool.stats().pageCount);
+    } /* RESERVE TEST END */
+
+    /* ===== COMPACT TEST ===== */
+    /* page 0 is left with one Vect, page 1 holds Particles with */
+    /* room to spare. the Vects must not move in with them */
+    @Test
+    public void compactSegregates()
+    {
+        MemPool pool = new MemPool("compact", PAGESIZE, 0x4);
+        pool.placement_policy = PlacementPolicy.typeSegregated();
+        Object[] vects = new Object[PAGESIZE];
+        for (int i = 0; i < PAGESIZE; i++) vects[i] = pool.alloc(Vect.class);
+        for (int i = 0; i < PAGESIZE / 2; i++) pool.alloc(Particle.class);
+        for (int i = 1; i < PAGESIZE; i++) pool.free(vects[i]);
+        assertEquals(2, pool.stats().pageCount);
+
+        /* the free Vects stay on page 0, so it is not dropped */
+        assertEquals(0, pool.compact());
+        pool.free(vects[0]);
+        assertEquals(2, pool.stats().pageCount);
+
+        long constructs = pool.stats().constructs;
+        for (int i = 0; i < PAGESIZE; i++) pool.alloc(Vect.class);
+        assertEquals(constructs, pool.stats().constructs);
+    } /* COMPACT TEST END */
+
+    /* ===== MIXED PAGE TEST ===== */
+    /* page 0 holds both classes and the only free Vects, page 1 */
+    /* is full of Vects. the policy picks neither, yet the free */
+    /* Vects are reused before new pages are built */
+    @Test
+    public void mixedPageReused()
+    {
+        MemPool pool = new MemPool("mixed", PAGESIZE, 0x4);
+        Object[] vects = new Object[PAGESIZE / 2];
+        for (int i = 0; i < PAGESIZE / 2; i++)
+        {
+            vects[i] = pool.alloc(Vect.class);
+            pool.alloc(Particle.class);
+        }
+        for (int i = 0; i < PAGESIZE; i++) pool.alloc(Vect.class);
+        for (int i = 0; i < 16; i++) pool.free(vects[i]);
+        assertEquals(2, pool.stats().pageCount);
+
+        pool.placement_policy = PlacementPolicy.typeSegregated();
+        long constructs = pool.stats().constructs;
+        for (int i = 0; i < 200; i++) assertNotNull(pool.alloc(Vect.class));
+        assertEquals(200 - 16, pool.stats().constructs - constructs);
+        assertEquals(5, pool.stats().pageCount);
+    } /* MIXED PAGE TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,127 @@
+/* <MemPoolTrimmerTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  The trimmer. A trimmer watching for memory pressure must leave
+ *  heap thresholds set by others alone, and leave the ones it armed
+ *  unset once the last trimmer stops. Instances reserved into a page
+ *  that emptied, by hand or by adapting, must not be trimmed with it.
+ */
+
+ /* ===== IMPORTS ===== */
+ import java.util.*;
+ import java.lang.management.*;
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemPoolTrimmerTest
+ {
+    /* ===== HELPER FUNCTIONS ===== */
+    /* heap pools whose collection threshold can be set */
+    private static List<MemoryPoolMXBean> heapPools()
+    {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP &&
+                pool.isCollectionUsageThresholdSupported() &&
+                pool.getUsage().getMax() > 0) pools.add(pool);
+        }
+        return pools;
+    } /* HELPER FUNCTIONS END */
+
+    /* ===== THRESHOLD TEST ===== */
+    /* the first pool keeps it's own threshold, the rest are armed */
+    /* by both trimmers and disarmed after the last one stops */
+    @Test
+    public void foreignThresholdKept()
+    {
+        List<MemoryPoolMXBean> pools = heapPools();
+        Assumptions.assumeFalse(pools.isEmpty());
+        MemoryPoolMXBean own = pools.get(0);
+        long threshold = own.getUsage().getMax() / 2;
+        own.setCollectionUsageThreshold(threshold);
+
+        MemPool first = new MemPool("first");
+        MemPool second = new MemPool("second");
+        try
+        {
+            assertEquals(1, first.startTrimmer(1000, 1000, 0.9));
+            assertEquals(1, second.startTrimmer(1000, 1000, 0.8));
+            assertEquals(threshold, own.getCollectionUsageThreshold());
+            for (MemoryPoolMXBean pool : pools.subList(1, pools.size()))
+                assertTrue(pool.getCollectionUsageThreshold() > 0);
+
+            first.stopTrimmer();
+            for (MemoryPoolMXBean pool : pools.subList(1, pools.size()))
+                assertTrue(pool.getCollectionUsageThreshold() > 0);
+
+            second.stopTrimmer();
+            assertEquals(threshold, own.getCollectionUsageThreshold());
+            for (MemoryPoolMXBean pool : pools.subList(1, pools.size()))
+                assertEquals(0, pool.getCollectionUsageThreshold());
+        }
+        finally
+        {
+            first.stopTrimmer();
+            second.stopTrimmer();
+            own.setCollectionUsageThreshold(0);
+        }
+    } /* THRESHOLD TEST END */
+
+    /* ===== RESERVE TEST ===== */
+    /* page 0 empties, then is reserved into shortly before it */
+    /* would have been idle long enough to trim */
+    @Test
+    public void reserveSurvivesTrimmer() throws InterruptedException
+    {
+        MemPool pool = new MemPool("reserve");
+        Object[] objs = new Object[10];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+        for (Object obj : objs) pool.free(obj);
+
+        assertEquals(1, pool.startTrimmer(20, 400, 0));
+        try
+        {
+            Thread.sleep(250);
+            assertEquals(50, pool.reserve(Vect.class, 50));
+            Thread.sleep(400);
+        }
+        finally { pool.stopTrimmer(); }
+
+        assertEquals(0, pool.stats().pagesCleaned);
+        long constructs = pool.stats().constructs;
+        for (int i = 0; i < 60; i++) pool.alloc(Vect.class);
+        assertEquals(constructs, pool.stats().constructs);
+    } /* RESERVE TEST END */
+
+    /* ===== ADAPT TEST ===== */
+    /* as in a trimmer pass, adapting reserves into the emptied */
+    /* page right before trimming */
+    @Test
+    public void adaptiveReserveSurvivesTrim() throws InterruptedException
+    {
+        MemPool pool = new MemPool("adapt");
+        pool.adaptive_mode = true;
+        assertEquals(1, pool.limit(Vect.class, -1, -1, 0, false));
+        Object[] objs = new Object[10];
+        for (int i = 0; i < objs.length; i++) objs[i] = pool.alloc(Vect.class);
+        for (Object obj : objs) pool.free(obj);
+
+        /* the page is left empty with no free instances */
+        Thread.sleep(10);
+        assertEquals(10, pool.evict());
+        assertEquals(1, pool.limit(Vect.class, -1, -1, -1, false));
+
+        long constructs = pool.stats().constructs;
+        pool.adapt();
+        assertEquals(constructs + 10, pool.stats().constructs);
+        pool.pageClean();
+        assertEquals(0, pool.stats().pagesCleaned);
+
+        for (int i = 0; i < objs.length; i++) pool.alloc(Vect.class);
+        assertEquals(constructs + 10, pool.stats().constructs);
+    } /* ADAPT TEST END */
+ } /* END CLASS BLOCK */
@@ -0,0 +1,114 @@
+/* <MemScopeTest.java>
+ * Bailey Jia-Tao Brown
+ * 2022
+ * 
+ * DESCRIPTION:
+ *  Scopes. Closing a scope frees everything allocated in it once,
+ *  skips what was freed by hand even when the slot was reused, and
+ *  closes the scopes nested inside it. Only the opening thread may
+ *  close a scope.
+ */
+
+ /* ===== IMPORTS ===== */
+ import org.junit.jupiter.api.*;
+ import static org.junit.jupiter.api.Assertions.*;
+
+ /* ===== CLASS BLOCK ===== */
+ public class MemScopeTest
+ {
+    /* ===== CLOSE TEST ===== */
+    /* every scoped alloc path is freed by close */
+    @Test
+    public void closeFreesAll()
+    {
+        MemPool pool = new MemPool("close");
+        Object[] objs = new Object[10];
+        Object[] batch = new Object[10];
+        long handle;
+        try (MemScope scope = pool.scope())
+        {
+            for (int i = 0; i < objs.length; i++)
+                objs[i] = pool.alloc(Vect.class);
+            assertEquals(batch.length,
+                pool.allocBatch(Vect.class, batch.length, batch));
+            handle = pool.allocHandle(Vect.class);
+            assertNotNull(pool.get(handle));
+        }
+
+        long failed = pool.stats().failedFrees;
+        assertNull(pool.get(handle));
+        for (Object obj : objs) assertEquals(0, pool.free(obj));
+        for (Object obj : batch) assertEquals(0, pool.free(obj));
+        assertEquals(failed + 20, pool.stats().failedFrees);
+
+        /* out of scope, allocs are not recorded */
+        long constructs = pool.stats().constructs;
+        Object obj = pool.alloc(Vect.class);
+        assertEquals(constructs, pool.stats().constructs);
+        assertEquals(1, pool.free(obj));
+    } /* CLOSE TEST END */
+
+    /* ===== FREED IN SCOPE TEST ===== */
+    /* the slot of a hand freed object is reused inside the scope */
+    @Test
+    public void handFreedSkipped()
+    {
+        MemPool pool = new MemPool("hand");
+        Object first;
+        Object second;
+        long failed;
+        try (MemScope scope = pool.scope())
+        {
+            first = pool.alloc(Vect.class);
+            assertEquals(1, pool.free(first));
+            second = pool.alloc(Vect.class);
+            assertSame(first, second);
+            failed = pool.stats().failedFrees;
+        }
+
+        /* close freed the reuse once, and nothing failed */
+        assertEquals(failed, pool.stats().failedFrees);
+        assertEquals(0, pool.free(second));
+    } /* FREED IN SCOPE TEST END */
+
+    /* ===== NESTED TEST ===== */
+    @Test
+    public void outerCloseClosesInner()
+    {
+        MemPool pool = new MemPool("nested");
+        MemScope outer = pool.scope();
+        Object outerObj = pool.alloc(Vect.class);
+        MemScope inner = pool.scope();
+        Object innerObj = pool.alloc(Vect.class);
+
+        outer.close();
+        assertEquals(0, pool.free(innerObj));
+        assertEquals(0, pool.free(outerObj));
+
+        /* closing again does nothing, allocs are no longer scoped */
+        inner.close();
+        outer.close();
+        Object obj = pool.alloc(Vect.class);
+        assertEquals(1, pool.free(obj));
+    } /* NESTED TEST END */
+
+    /* ===== WRONG THREAD TEST ===== */
+    @Test
+    public void otherThreadCantClose() throws InterruptedException
+    {
+        MemPool pool = new MemPool("thread");
+        MemScope scope = pool.scope();
+        Object obj = pool.alloc(Vect.class);
+
+        Thread other = new Thread(scope::close);
+        other.start();
+        other.join();
+
+        /* still open, so the object is still live */
+        scope.close();
+        assertEquals(0, pool.free(obj));
+        long constructs = pool.stats().constructs;
+        assertSame(obj, pool.alloc(Vect.class));
+        assertEquals(constructs, pool.stats().constructs);
+    } /* WRONG THREAD TEST END */
+ } /* END CLASS BLOCK */